@@ -0,0 +1,9 @@
+/*
+  The set of states that have already been expanded by a search.
+*/
+public interface ClosedList {
+    public boolean contains(State s);
+    /* Inserts s and returns true iff s was not contained before. */
+    public boolean add(State s);
+    public long size();
+}
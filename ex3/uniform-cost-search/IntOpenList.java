@@ -0,0 +1,12 @@
+/*
+  The open list of a search algorithm: a priority queue of node indices
+  (see NodeStore) with integer priorities. The items are ints, so no
+  Integer object is allocated per entry.
+*/
+public interface IntOpenList {
+    public void add(int item, int priority);
+    /* Removes an item with minimal priority; only defined if the list is not empty. */
+    public int poll();
+    public boolean isEmpty();
+    public int size();
+}
@@ -9,71 +9,145 @@
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
 
-public class LightsOutStateSpace implements StateSpace {
+public class LightsOutStateSpace implements PackedStateSpace {
     /*
       We make lights-out states and actions private since the search code
       cannot and should not look into the state.
     */
 
-    private static class LightsOutState implements State {
+    private static abstract class LightsOutState implements State {
         /*
-          A state is represented as a two-dimensional array of booleans, 
-          representing the grid of lights, where "true" means the light is on
-          and "false" that the light is off. 
+          A state is represented as a bit vector over the grid of lights,
+          where bit x*dimy+y is set iff the light (x, y) is on. Grids with
+          at most 64 cells fit into a single long (SmallLightsOutState);
+          larger grids use an array of longs (LargeLightsOutState).
+          The dimensions are only stored for printing.
         */
-        public ArrayList<ArrayList<Boolean>> lights;
+        protected final int dimx;
+        protected final int dimy;
 
-        public LightsOutState(ArrayList<ArrayList<Boolean>> lights) {
+        protected LightsOutState(int dimx, int dimy) {
+            this.dimx = dimx;
+            this.dimy = dimy;
+        }
+
+        public abstract boolean isLit(int cell);
+
+        public String toString() {
+            StringBuilder result = new StringBuilder("\n");
+            for (int x = 0; x < dimx; x++) {
+                for (int y = 0; y < dimy; y++) {
+                    if (isLit(x*dimy+y)) {
+                        result.append("1 ");
+                    } else {
+                        result.append("0 ");
+                    }
+                }
+                result.append("\n");
+            }
+            return result.toString();
+        }
+    }
+
+    private static class SmallLightsOutState extends LightsOutState {
+        public final long lights;
+
+        public SmallLightsOutState(int dimx, int dimy, long lights) {
+            super(dimx, dimy);
             this.lights = lights;
         }
 
+        public boolean isLit(int cell) {
+            return (lights & (1L << cell)) != 0;
+        }
+
         @Override
         public boolean equals(Object o) {
-            if (!(o instanceof LightsOutState)) {
+            if (!(o instanceof SmallLightsOutState)) {
                 return false;
             }
-            LightsOutState other = (LightsOutState)o;
-            return lights.equals(other.lights);
+            SmallLightsOutState other = (SmallLightsOutState)o;
+            return lights == other.lights;
         }
 
         @Override
         public int hashCode() {
-            return lights.hashCode();
+            return Long.hashCode(lights);
         }
+    }
 
-        public String toString() {
-            String result = "\n";
-            for (int x = 0; x < lights.size(); x++) {
-                for (int y = 0; y < lights.get(x).size(); y++) {
-                    if (lights.get(x).get(y)) {
-                        result += "1 ";
-                    } else {
-                        result += "0 ";
-                    }
-                }
-              result += "\n";
+    private static class LargeLightsOutState extends LightsOutState {
+        public final long[] lights;
+
+        public LargeLightsOutState(int dimx, int dimy, long[] lights) {
+            super(dimx, dimy);
+            this.lights = lights;
+        }
+
+        public boolean isLit(int cell) {
+            return (lights[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LargeLightsOutState)) {
+                return false;
             }
-            return result;
+            LargeLightsOutState other = (LargeLightsOutState)o;
+            return Arrays.equals(lights, other.lights);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(lights);
         }
     }
 
     private static class LightsOutAction implements Action {
         /*
-          Every action is defined by the number position of the toggled light
+          Every action is defined by the number position of the toggled light.
+          The toggled cells are precomputed as XOR masks: "mask" for grids
+          with at most 64 cells, and the non-zero words of the mask
+          ("maskWords" holds their indices, "maskBits" their values) for
+          larger grids.
         */
 
         private int x;
         private int y;
         private int cost;
+        private long mask;
+        private int[] maskWords;
+        private long[] maskBits;
 
-        public LightsOutAction(int x, int y, int cost) {
+        public LightsOutAction(int x, int y, int cost, long[] toggleMask) {
             this.x = x;
             this.y = y;
             this.cost = cost;
+
+            int nonZero = 0;
+            for (long word : toggleMask) {
+                if (word != 0) {
+                    nonZero++;
+                }
+            }
+            maskWords = new int[nonZero];
+            maskBits = new long[nonZero];
+            int i = 0;
+            for (int word = 0; word < toggleMask.length; word++) {
+                if (toggleMask[word] != 0) {
+                    maskWords[i] = word;
+                    maskBits[i] = toggleMask[word];
+                    i++;
+                }
+            }
+            if (toggleMask.length > 0) {
+                mask = toggleMask[0];
+            }
         }
 
         public int cost() {
@@ -111,9 +185,41 @@ public class LightsOutStateSpace implements StateSpace {
                 if (y == 0 || y == dimy-1) {
                     cost--;
                 }
-                actions[x*dimy+y] = new LightsOutAction(x, y, cost);
+                actions[x*dimy+y] = new LightsOutAction(x, y, cost, toggleMask(x, y));
+            }
+        }
+    }
+
+    /*
+      Returns the bit vector of the cells toggled by pressing (x, y), i.e.,
+      the cell itself and its (up to four) orthogonal neighbors.
+    */
+    private long[] toggleMask(int x, int y) {
+        long[] mask = new long[numWords(dimx, dimy)];
+        for (int i = Math.max(0, x-1); i <= Math.min(dimx-1, x+1); i++) {
+            for (int j = Math.max(0, y-1); j <= Math.min(dimy-1, y+1); j++) {
+                if (Math.abs(i - x) + Math.abs(j - y) <= 1) {
+                    int cell = i*dimy+j;
+                    mask[cell >>> 6] |= 1L << cell;
+                }
             }
         }
+        return mask;
+    }
+
+    private static int numWords(int dimx, int dimy) {
+        return (dimx*dimy + 63) / 64;
+    }
+
+    /*
+      Creates a state from a bit vector with numWords(dimx, dimy) words,
+      choosing the packed representation that fits the grid size.
+    */
+    private static LightsOutState createState(int dimx, int dimy, long[] lights) {
+        if (dimx*dimy <= 64) {
+            return new SmallLightsOutState(dimx, dimy, lights.length == 0 ? 0 : lights[0]);
+        }
+        return new LargeLightsOutState(dimx, dimy, lights);
     }
 
     /*
@@ -136,18 +242,19 @@ public class LightsOutStateSpace implements StateSpace {
     }
 
     public boolean isGoal(State s_) {
-        LightsOutState s = (LightsOutState) s_;
-
         /*
           The (only) goal state of the lights-out problem is the one where
           all lights are off
         */
 
-        for (int x = 0; x < dimx; x++) {
-            for (int y = 0; y < dimy; y++) {
-                if (s.lights.get(x).get(y)) {
-                    return false;
-                }
+        if (s_ instanceof SmallLightsOutState) {
+            return ((SmallLightsOutState) s_).lights == 0;
+        }
+
+        LargeLightsOutState s = (LargeLightsOutState) s_;
+        for (long word : s.lights) {
+            if (word != 0) {
+                return false;
             }
         }
 
@@ -166,29 +273,20 @@ public class LightsOutStateSpace implements StateSpace {
     }
 
     private ActionStatePair createSuccessor(LightsOutState s, LightsOutAction action) {
-        int x = action.x;
-        int y = action.y;
-        int dimx = s.lights.size();
-        int dimy = s.lights.get(0).size();
-        
-        ArrayList<ArrayList<Boolean>> newLights = new ArrayList<ArrayList<Boolean>>();
-        for (int i = 0; i < dimx; i++) {
-            newLights.add(new ArrayList<Boolean>());
-            for (int j = 0; j < dimy; j++) {
-                 /*
-                   If if (i,j) is the cell (x,y) or a neighboring cell, set
-                   its value to the negation of the corresponding cell of the
-                   predecessor, otherwise copy the value.
-                 */
-                 if (Math.abs(i - action.x) + Math.abs(j - action.y) <= 1) {
-                     newLights.get(i).add(!s.lights.get(i).get(j));
-                 } else {
-                     newLights.get(i).add(s.lights.get(i).get(j));
-                 }
+        /*
+          Toggling (x,y) and its neighbors is an XOR of the current grid
+          with the precomputed toggle mask of the action.
+        */
+        LightsOutState succ;
+        if (s instanceof SmallLightsOutState) {
+            succ = new SmallLightsOutState(dimx, dimy, ((SmallLightsOutState) s).lights ^ action.mask);
+        } else {
+            long[] newLights = ((LargeLightsOutState) s).lights.clone();
+            for (int i = 0; i < action.maskWords.length; i++) {
+                newLights[action.maskWords[i]] ^= action.maskBits[i];
             }
+            succ = new LargeLightsOutState(dimx, dimy, newLights);
         }
-
-        LightsOutState succ = new LightsOutState(newLights);
         return new ActionStatePair(action,succ);
     }
 
@@ -197,6 +295,26 @@ public class LightsOutStateSpace implements StateSpace {
         return a.cost();
     }
 
+    public int packedWords() {
+        return numWords(dimx, dimy);
+    }
+
+    public void pack(State s_, long[] key, int offset) {
+        if (s_ instanceof SmallLightsOutState) {
+            if (dimx*dimy > 0) {
+                key[offset] = ((SmallLightsOutState) s_).lights;
+            }
+        } else {
+            long[] lights = ((LargeLightsOutState) s_).lights;
+            System.arraycopy(lights, 0, key, offset, lights.length);
+        }
+    }
+
+    public State unpack(long[] key, int offset) {
+        long[] lights = Arrays.copyOfRange(key, offset, offset + numWords(dimx, dimy));
+        return createState(dimx, dimy, lights);
+    }
+
     /*
       The following method instantiates the state space by reading the
       problem description from a file specified on the command line.
@@ -245,14 +363,13 @@ public class LightsOutStateSpace implements StateSpace {
         }
         lineScanner.close();
 
-        ArrayList<ArrayList<Boolean>> initialLights = new ArrayList<ArrayList<Boolean>>();
+        long[] initialLights = new long[numWords(dimx, dimy)];
         for (int x = 0; x < dimx; x++) {
             if(!scanner.hasNextLine()) {
                 Errors.fileError("Grid description has less than the specified "
             + dimx + " rows.");
             }
             lineScanner = new Scanner(scanner.nextLine());
-            initialLights.add(new ArrayList<Boolean>());
             for (int y = 0; y < dimy; y++) {
                 if(!lineScanner.hasNextInt()) {
                     Errors.fileError("Grid description wrong: row " + (x+1)
@@ -260,9 +377,8 @@ public class LightsOutStateSpace implements StateSpace {
                 }
                 int val = lineScanner.nextInt();
                 if (val == 1) {
-                    initialLights.get(x).add(true);
-                } else {
-                    initialLights.get(x).add(false);
+                    int cell = x*dimy+y;
+                    initialLights[cell >>> 6] |= 1L << cell;
                 }
             }
             if (lineScanner.hasNext()) {
@@ -277,7 +393,7 @@ public class LightsOutStateSpace implements StateSpace {
         }
         scanner.close();
 
-        LightsOutState initialState = new LightsOutState(initialLights);
+        LightsOutState initialState = createState(dimx, dimy, initialLights);
         return new LightsOutStateSpace(dimx, dimy, initialState);
     }
 }
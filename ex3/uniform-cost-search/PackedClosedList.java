@@ -0,0 +1,117 @@
+/*
+  Closed list for states of a PackedStateSpace.
+
+  The packed keys are stored in one flat long array (open addressing with
+  linear probing), so there is no entry object per state and the
+  duplicate check only compares primitive words. Which slots are in use
+  is recorded in a separate bit set, since every key (including all
+  zeros) is a valid state.
+*/
+public class PackedClosedList implements ClosedList {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final PackedStateSpace stateSpace;
+    private final int stride;
+    private final long[] key;
+
+    private long[] keys;
+    private long[] used;
+    private int mask;
+    private int size;
+
+    public PackedClosedList(PackedStateSpace stateSpace) {
+        this.stateSpace = stateSpace;
+        this.stride = Math.max(1, stateSpace.packedWords());
+        this.key = new long[stride];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public boolean contains(State s) {
+        stateSpace.pack(s, key, 0);
+        return used(find(key, 0));
+    }
+
+    public boolean add(State s) {
+        stateSpace.pack(s, key, 0);
+        int slot = find(key, 0);
+        if (used(slot)) {
+            return false;
+        }
+        insert(slot, key, 0);
+        if (2 * size > mask + 1) {
+            grow();
+        }
+        return true;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /*
+      Returns the slot holding the key at k[offset..offset+stride), or the
+      free slot where it would have to be inserted.
+    */
+    private int find(long[] k, int offset) {
+        int slot = (int) hash(k, offset) & mask;
+        while (used(slot) && !matches(slot, k, offset)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int slot, long[] k, int offset) {
+        int base = slot * stride;
+        for (int i = 0; i < stride; i++) {
+            if (keys[base + i] != k[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int slot, long[] k, int offset) {
+        System.arraycopy(k, offset, keys, slot * stride, stride);
+        used[slot >>> 6] |= 1L << slot;
+        size++;
+    }
+
+    private boolean used(int slot) {
+        return (used[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * stride];
+        used = new long[(capacity + 63) / 64];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= MAX_CAPACITY || 2L * capacity * stride > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("closed list exceeds " + MAX_CAPACITY + " entries");
+        }
+        long[] oldKeys = keys;
+        long[] oldUsed = used;
+        allocate(2 * capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            if ((oldUsed[slot >>> 6] & (1L << slot)) != 0) {
+                insert(find(oldKeys, slot * stride), oldKeys, slot * stride);
+            }
+        }
+    }
+
+    private long hash(long[] k, int offset) {
+        long h = 0;
+        for (int i = 0; i < stride; i++) {
+            h = (h ^ k[offset + i]) * 0x9E3779B97F4A7C15L;
+        }
+        // Final mixing step of MurmurHash3.
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
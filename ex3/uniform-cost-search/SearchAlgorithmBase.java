@@ -38,6 +38,34 @@ public abstract class SearchAlgorithmBase {
         }
     }
 
+    /*
+      Returns an empty closed list for the state space. States that can be
+      packed into words are stored in a primitive hash table; all other
+      states fall back to a HashSet.
+    */
+    protected ClosedList createClosedList() {
+        if (stateSpace instanceof PackedStateSpace) {
+            return new PackedClosedList((PackedStateSpace) stateSpace);
+        }
+        return new HashClosedList();
+    }
+
+    /*
+      Returns an empty open list for the node indices of a NodeStore, of
+      the given type: "heap" (binary heap) or "bucket" (one bucket per
+      priority; only for small non-negative integer priorities).
+    */
+    protected IntOpenList createIntOpenList(String type) {
+        if (type.equals("heap")) {
+            return new IntHeapOpenList();
+        } else if (type.equals("bucket")) {
+            return new IntBucketOpenList();
+        } else {
+            Errors.usageError("unknown open list: " + type);
+        }
+        return null;
+    }
+
     protected static long getCpuTime() {
         ThreadMXBean bean = ManagementFactory.getThreadMXBean();
         return bean.isCurrentThreadCpuTimeSupported() ?
@@ -49,8 +77,8 @@ public abstract class SearchAlgorithmBase {
             Errors.usageError("no state space given");
         }
 
-        ArrayList<String> params = new ArrayList<String>(Arrays.asList(args));
-        params.remove(0);
+        ArrayList<String> params = new ArrayList<String>();
+        params.add(args[1]);
 
         if (args[0].equals("lights-out")) {
             return LightsOutStateSpace.buildFromCmdline(params);
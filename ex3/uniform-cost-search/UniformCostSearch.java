@@ -7,6 +7,7 @@ Tim Bachmann
 import java.util.*;
 
 public class UniformCostSearch extends SearchAlgorithmBase {
+    private final String openListType;
 
     public static void main(String[] args) {
         UniformCostSearch uniformCostSearch = new UniformCostSearch(args);
@@ -15,68 +16,35 @@ public class UniformCostSearch extends SearchAlgorithmBase {
 
     public UniformCostSearch(String[] args) {
         super(args);
+        openListType = Options.get(args, "open-list", "heap");
     }
 
     @Override
     protected ArrayList<Action> run() {
-        PriorityQueue<SearchNode> openList = new PriorityQueue<>(Comparator.comparingInt(node -> node.cost));
-        openList.add(makeRootNode());
-        HashSet<State> closed = new HashSet<>();
+        NodeStore nodes = new NodeStore(stateSpace);
+        IntOpenList openList = createIntOpenList(openListType);
+        openList.add(nodes.add(NodeStore.NO_NODE, null, stateSpace.init(), 0), 0);
+        ClosedList closed = createClosedList();
 
         while(!openList.isEmpty()) {
             //System.out.println((long) openList.size());
-            SearchNode searchNode = openList.poll();
-            if (!closed.contains(searchNode.state)){
+            int node = openList.poll();
+            State state = nodes.state(node);
+            if (closed.add(state)) {
                 expandedNodes++;
-                closed.add(searchNode.state);
-                if (stateSpace.isGoal(searchNode.state)) {
+                if (stateSpace.isGoal(state)) {
                     expandedNodes--;
-                    return extractPath(searchNode);
+                    return nodes.extractPath(node);
                 }
-                for (ActionStatePair actionStatePair : stateSpace.succ(searchNode.state)) {
-                    SearchNode newSearchNode = new SearchNode(searchNode, actionStatePair.action, actionStatePair.state, stateSpace);
-                    openList.add(newSearchNode);
+                for (ActionStatePair actionStatePair : stateSpace.succ(state)) {
+                    int g = nodes.g(node) + stateSpace.cost(actionStatePair.action);
+                    openList.add(nodes.add(node, actionStatePair.action, actionStatePair.state, g), g);
 
                 }
+            } else {
+                nodes.release(node);
             }
         }
         return null;
     }
-
-    public SearchNode makeRootNode() {
-        SearchNode root = new SearchNode();
-        root.parent = null;
-        root.action = null;
-        root.state = stateSpace.init();
-        root.cost = 0;
-        return root;
-    }
-
-    public ArrayList<Action> extractPath(SearchNode node) {
-        ArrayList<Action> path = new ArrayList<>();
-        while (node.parent != null) {
-            path.add(node.action);
-            node = node.parent;
-        }
-        Collections.reverse(path);
-        return path;
-    }
-
-    class SearchNode {
-        SearchNode parent;
-        Action action;
-        State state;
-        int cost;
-
-        SearchNode(SearchNode parent, Action action, State state, StateSpace stateSpace) {
-            this.parent = parent;
-            this.action = action;
-            this.state = state;
-            this.cost = parent.cost + stateSpace.cost(action);
-        }
-
-        public SearchNode() {
-
-        }
-    }
 }
@@ -0,0 +1,243 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+  Solves many instances in one process with best-first search, so that
+  JVM startup and JIT warmup are paid only once.
+
+  The instances are all files of a directory (in name order), a single
+  batch file (see LightsOutStateSpace.readAllFromFile for the format),
+  or the files listed in a manifest, one per line, relative to the
+  manifest's directory; empty lines and lines starting with "#" are
+  ignored. Each file holds one instance or a batch of instances; the
+  instances of a batch file are named <file>#1, <file>#2, and so on. The
+  files are read by the main thread, their instances are solved
+  concurrently by a fixed number of worker threads, and one result line
+  is printed per instance as soon as it is finished:
+
+    <instance> solved cost=<c> expanded=<n> time=<s> solution=[<actions>]
+    <instance> no-solution expanded=<n> time=<s>
+    <instance> unsolvable expanded=0 time=<s>
+    <instance> time-limit expanded=<n> time=<s>
+    <instance> node-limit expanded=<n> time=<s>
+    <instance> error <message>
+
+  where time is the wall-clock time of the search in seconds. The main
+  thread reads ahead at most two instances per worker thread, so the
+  instances of a large batch are not all in memory at once.
+
+  Options:
+    --threads=<n>      number of worker threads (default: processors)
+    --time-limit=<s>   wall-clock seconds per instance (default: none)
+    --node-limit=<n>   expansions per instance (default: none)
+  and the options of BestFirstSearch, which is used for every instance.
+  Pattern databases (--pdb) are not supported.
+
+  Usage: BatchSolver <state space> <directory, batch file or manifest> <g> <h> [options]
+*/
+public class BatchSolver {
+    private final String[] args;
+    private final long nodeLimit;
+    private final long timeLimitNanos;
+
+    public BatchSolver(String[] args) {
+        this.args = args;
+        nodeLimit = Long.parseLong(Options.get(args, "node-limit", "" + Long.MAX_VALUE));
+        String timeLimit = Options.get(args, "time-limit", null);
+        if (timeLimit == null) {
+            timeLimitNanos = Long.MAX_VALUE;
+        } else {
+            timeLimitNanos = (long) (Double.parseDouble(timeLimit) * 1e9);
+        }
+    }
+
+    /* Returns the result line for one instance. */
+    private String solve(String filename, LightsOutStateSpace stateSpace) {
+        // With --anytime, only the final solution is printed, in the result line.
+        BestFirstSearch search = new BestFirstSearch(stateSpace, args) {
+            @Override
+            protected void solutionFound(ArrayList<Action> solution, int cost, double bound, long nanos) {
+            }
+
+            @Override
+            protected void searchStopped(String limit) {
+            }
+        };
+        search.setLimits(nodeLimit, timeLimitNanos);
+
+        long timeStart = System.nanoTime();
+        String status;
+        search.statistics.start(filename);
+        ArrayList<Action> solution = null;
+        int totalCost = 0;
+        try {
+            if (search.isProvablyUnsolvable()) {
+                status = "unsolvable";
+            } else {
+                solution = search.run();
+                status = solution == null ? "no-solution" : "solved";
+            }
+        } catch (SearchLimitExceededException e) {
+            status = e.getMessage().replace(' ', '-');
+        } catch (OutOfMemoryError e) {
+            // The search's data is unreachable now, so the other workers can go on.
+            return filename + " error out of memory";
+        } finally {
+            if (solution != null) {
+                for (Action action : solution) {
+                    totalCost += stateSpace.cost(action);
+                }
+            }
+            search.statistics.finish(search.expandedNodes, search.generatedNodes,
+                                     search.prunedDuplicates, solution != null, totalCost);
+        }
+        double seconds = (System.nanoTime() - timeStart) / 1000000000.0;
+
+        StringBuilder line = new StringBuilder(filename).append(' ').append(status);
+        if (solution != null) {
+            line.append(" cost=").append(totalCost);
+        }
+        line.append(" expanded=").append(search.expandedNodes);
+        line.append(String.format(Locale.ROOT, " time=%.3f", seconds));
+        if (solution != null) {
+            line.append(" solution=").append(solution);
+        }
+        return line.toString();
+    }
+
+    /*
+      Returns the instance files given by a directory, a batch file or a
+      manifest.
+    */
+    private static ArrayList<String> listInstances(String path) {
+        File file = new File(path);
+        ArrayList<String> instances = new ArrayList<String>();
+        if (file.isDirectory()) {
+            File[] files = file.listFiles(File::isFile);
+            if (files == null) {
+                Errors.fileError("cannot list directory: " + path);
+            }
+            Arrays.sort(files);
+            for (File instance : files) {
+                instances.add(instance.getPath());
+            }
+        } else if (isBatchFile(path)) {
+            instances.add(path);
+        } else {
+            List<String> lines = null;
+            try {
+                lines = Files.readAllLines(file.toPath());
+            } catch (IOException e) {
+                Errors.fileError("cannot read manifest: " + path);
+            }
+            File directory = file.getAbsoluteFile().getParentFile();
+            for (String line : lines) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                File instance = new File(line);
+                if (!instance.isAbsolute()) {
+                    instance = new File(directory, line);
+                }
+                instances.add(instance.getPath());
+            }
+        }
+        return instances;
+    }
+
+    private static boolean isBatchFile(String path) {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+            String firstLine = reader.readLine();
+            return firstLine != null && firstLine.trim().startsWith("lights-out-batch");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            Errors.usageError("no state space given");
+        }
+        if (!args[0].equals("lights-out")) {
+            Errors.usageError("unknown state space: " + args[0]);
+        }
+        if (args.length < 2) {
+            Errors.usageError("no directory, batch file or manifest given");
+        }
+        if (args.length < 4) {
+            Errors.usageError("no g and h value multipliers given.");
+        }
+        int threads = Integer.parseInt(Options.get(args, "threads",
+                "" + Runtime.getRuntime().availableProcessors()));
+        if (threads < 1) {
+            Errors.usageError("need at least one thread");
+        }
+
+        BatchSolver solver = new BatchSolver(args);
+        ArrayList<String> instances = listInstances(args[1]);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<String> results = new ExecutorCompletionService<String>(executor);
+        // The instances that are submitted and not printed yet, with their names.
+        HashMap<Future<String>, String> running = new HashMap<>();
+        int maxRunning = 2 * threads;
+        int total = 0;
+        int solved = 0;
+        for (String file : instances) {
+            ArrayList<LightsOutStateSpace> stateSpaces;
+            try {
+                stateSpaces = LightsOutStateSpace.readAllFromFile(file);
+            } catch (InvalidInputException e) {
+                System.out.println(file + " error " + e.getMessage());
+                total++;
+                continue;
+            }
+            for (int i = 0; i < stateSpaces.size(); i++) {
+                while (running.size() >= maxRunning) {
+                    solved += printResult(results.take(), running);
+                }
+                String name = stateSpaces.size() == 1 ? file : file + "#" + (i + 1);
+                LightsOutStateSpace stateSpace = stateSpaces.set(i, null);
+                running.put(results.submit(() -> solver.solve(name, stateSpace)), name);
+                total++;
+                Future<String> finished;
+                while ((finished = results.poll()) != null) {
+                    solved += printResult(finished, running);
+                }
+            }
+        }
+        while (!running.isEmpty()) {
+            solved += printResult(results.take(), running);
+        }
+        executor.shutdown();
+        System.out.println("solved " + solved + " of " + total + " instances");
+    }
+
+    /* Prints the result line of a finished instance; returns 1 if it was solved, else 0. */
+    private static int printResult(Future<String> finished, HashMap<Future<String>, String> running)
+            throws InterruptedException {
+        String name = running.remove(finished);
+        String line;
+        try {
+            line = finished.get();
+        } catch (ExecutionException e) {
+            line = name + " error " + e.getCause();
+        }
+        System.out.println(line);
+        return line.startsWith(name + " solved ") ? 1 : 0;
+    }
+}
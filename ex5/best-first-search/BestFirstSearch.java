@@ -3,9 +3,24 @@ import java.util.*;
 public class BestFirstSearch extends SearchAlgorithmBase {
     private final int gMultiplier;
     private final int hMultiplier;
+    private final String openListType;
+    private final boolean detectDuplicatesOnGeneration;
+    private final boolean reopenClosedNodes;
+    private final boolean useCanonicalActionOrder;
+    private final boolean anytime;
+    private final int anytimeStep;
 
     public BestFirstSearch(String[] args) {
-        super(args);
+        this(createStateSpace(args), args);
+    }
+
+    /*
+      Search on the given state space with the options of the command line
+      args; the state space arguments args[0] and args[1] are ignored.
+    */
+    BestFirstSearch(StateSpace stateSpace, String[] args) {
+        super(stateSpace);
+        forceGf2Check = Options.has(args, "gf2-check");
         if (args.length < 3) {
             Errors.usageError("no g value multiplier given.");
         }
@@ -14,73 +29,387 @@ public class BestFirstSearch extends SearchAlgorithmBase {
         }
         gMultiplier = Integer.parseInt(args[2]);
         hMultiplier = Integer.parseInt(args[3]);
+        openListType = Options.get(args, "open-list", "heap");
+
+        String duplicates = Options.get(args, "duplicates", "expansion");
+        if (!duplicates.equals("expansion") && !duplicates.equals("generation")) {
+            Errors.usageError("unknown duplicate detection: " + duplicates);
+        }
+        detectDuplicatesOnGeneration = duplicates.equals("generation");
+        reopenClosedNodes = Options.has(args, "reopen");
+        if (reopenClosedNodes && !detectDuplicatesOnGeneration) {
+            Errors.usageError("--reopen requires --duplicates=generation");
+        }
+        useCanonicalActionOrder = Options.has(args, "canonical-order");
+        if (useCanonicalActionOrder && !(stateSpace instanceof CanonicalActionOrder)) {
+            Errors.usageError("state space does not support --canonical-order");
+        }
+        if (useCanonicalActionOrder && detectDuplicatesOnGeneration) {
+            Errors.usageError("--canonical-order cannot be combined with --duplicates=generation");
+        }
+        reduceSymmetries = Options.has(args, "symmetry");
+        if (reduceSymmetries && !(stateSpace instanceof SymmetricStateSpace)) {
+            Errors.usageError("state space does not support --symmetry");
+        }
+        if (reduceSymmetries && useCanonicalActionOrder) {
+            Errors.usageError("--symmetry cannot be combined with --canonical-order");
+        }
+        String closedList = Options.get(args, "closed-list", "exact");
+        if (closedList.equals("bitstate")) {
+            if (!(stateSpace instanceof PackedStateSpace)) {
+                Errors.usageError("state space does not support --closed-list=bitstate");
+            }
+            if (detectDuplicatesOnGeneration || useCanonicalActionOrder || Options.has(args, "anytime")) {
+                Errors.usageError("--closed-list=bitstate requires duplicate detection on expansion");
+            }
+            long bytes = Options.getSize(args, "bitstate-size", "256m");
+            int hashes = Integer.parseInt(Options.get(args, "bitstate-hashes", "3"));
+            if (bytes < 8 || bytes > BitstateClosedList.MAX_BYTES || hashes < 1) {
+                Errors.usageError("--bitstate-size must be between 8 and " + BitstateClosedList.MAX_BYTES
+                                  + " bytes and --bitstate-hashes at least 1");
+            }
+            useBitstateClosedList(bytes, hashes);
+        } else if (!closedList.equals("exact")) {
+            Errors.usageError("unknown closed list: " + closedList);
+        }
+        anytime = Options.has(args, "anytime");
+        anytimeStep = Integer.parseInt(Options.get(args, "anytime-step", "1"));
+        if (anytime && (gMultiplier <= 0 || hMultiplier < gMultiplier)) {
+            Errors.usageError("--anytime requires 0 < g value multiplier <= h value multiplier");
+        }
+        if (anytime && anytimeStep <= 0) {
+            Errors.usageError("--anytime-step must be positive");
+        }
+        if (anytime && (detectDuplicatesOnGeneration || useCanonicalActionOrder)) {
+            Errors.usageError("--anytime cannot be combined with --duplicates or --canonical-order");
+        }
     }
 
     @Override
     protected ArrayList<Action> run() {
-        PriorityQueue<SearchNode> openList = new PriorityQueue<>(Comparator.comparingInt(node -> (gMultiplier * node.cost) + (hMultiplier * node.h)));
-        openList.add(makeRootNode());
-        HashSet<State> closed = new HashSet<>();
+        if (anytime) {
+            return runAnytime();
+        }
+        if (detectDuplicatesOnGeneration) {
+            return runWithDuplicateDetectionOnGeneration();
+        }
+        if (useCanonicalActionOrder) {
+            return runWithCanonicalActionOrder();
+        }
+
+        NodeStore nodes = new NodeStore(stateSpace);
+        IntOpenList openList = createIntOpenList(openListType);
+        int root = addRootNode(nodes);
+        openList.add(root, priority(nodes, root));
+        ClosedList closed = createClosedList();
 
         while(!openList.isEmpty()) {
-            SearchNode searchNode = openList.poll();
-            if (!closed.contains(searchNode.state)){
-                closed.add(searchNode.state);
+            int node = openList.poll();
+            State state = nodes.state(node);
+            if (closed.add(state)) {
                 expandedNodes++;
-                if (stateSpace.isGoal(searchNode.state)) {
+                if (stateSpace.isGoal(state)) {
                     expandedNodes--;
-                    return extractPath(searchNode);
+                    return nodes.extractPath(node);
                 }
-                for (ActionStatePair actionStatePair : stateSpace.succ(searchNode.state)) {
-                    SearchNode newSearchNode = new SearchNode(searchNode, actionStatePair.action, actionStatePair.state, stateSpace);
-                    openList.add(newSearchNode);
+                for (ActionStatePair actionStatePair : stateSpace.succ(state)) {
+                    int child = addChildNode(nodes, node, actionStatePair);
+                    openList.add(child, priority(nodes, child));
+                    generatedNodes++;
                 }
+                peakOpenListSize = Math.max(peakOpenListSize, openList.size());
+                reportProgress(openList.size(), closed.size(), priority(nodes, node));
+            } else {
+                nodes.release(node);
+                prunedDuplicates++;
             }
         }
         return null;
     }
 
-    public static void main(String[] args) {
-        BestFirstSearch search = new BestFirstSearch(args);
-        search.runSearchAlgorithm();
-    }
+    /*
+      Variant of run() that detects duplicates when nodes are generated:
+      we remember the best g value of every generated state and only add
+      a successor to the open list if it is reached more cheaply than
+      before. Nodes that were superseded by a cheaper path while waiting
+      in the open list are skipped when they are polled.
+
+      Without reopening, a successor whose state has already been expanded
+      is always dropped. With reopening (needed for optimality with
+      inconsistent heuristics), such a successor is added again if it is
+      cheaper, and its state is expanded again.
+    */
+    private ArrayList<Action> runWithDuplicateDetectionOnGeneration() {
+        NodeStore nodes = new NodeStore(stateSpace);
+        IntOpenList openList = createIntOpenList(openListType);
+        int root = addRootNode(nodes);
+        openList.add(root, priority(nodes, root));
+        peakOpenListSize = 1;
+        GValueTable bestG = createGValueTable();
+        bestG.put(stateSpace.init(), 0);
+        ClosedList closed = createClosedList();
 
-    public SearchNode makeRootNode() {
-        SearchNode root = new SearchNode();
-        root.parent = null;
-        root.action = null;
-        root.state = stateSpace.init();
-        root.cost = 0;
-        return root;
+        while(!openList.isEmpty()) {
+            int node = openList.poll();
+            State state = nodes.state(node);
+            if (nodes.g(node) > bestG.get(state)) {
+                nodes.release(node);
+                prunedDuplicates++;
+                continue;
+            }
+            if (!reopenClosedNodes) {
+                closed.add(state);
+            }
+            expandedNodes++;
+            if (stateSpace.isGoal(state)) {
+                expandedNodes--;
+                return nodes.extractPath(node);
+            }
+            for (ActionStatePair actionStatePair : stateSpace.succ(state)) {
+                generatedNodes++;
+                int g = nodes.g(node) + stateSpace.cost(actionStatePair.action);
+                if (g >= bestG.get(actionStatePair.state)) {
+                    prunedDuplicates++;
+                    continue;
+                }
+                if (!reopenClosedNodes && closed.contains(actionStatePair.state)) {
+                    prunedDuplicates++;
+                    continue;
+                }
+                bestG.put(actionStatePair.state, g);
+                int child = addChildNode(nodes, node, actionStatePair);
+                openList.add(child, priority(nodes, child));
+            }
+            peakOpenListSize = Math.max(peakOpenListSize, openList.size());
+            reportProgress(openList.size(), bestG.size(), priority(nodes, node));
+        }
+        return null;
     }
 
-    public ArrayList<Action> extractPath(SearchNode node) {
-        ArrayList<Action> path = new ArrayList<>();
-        while (node.parent != null) {
-            path.add(node.action);
-            node = node.parent;
+    /*
+      Variant of run() that only generates successors in the canonical
+      action order of the state space. This already avoids generating the
+      same set of actions in different orders, so there is no closed list:
+      a state reached again with a different last action has different
+      successors and must not be pruned.
+    */
+    private ArrayList<Action> runWithCanonicalActionOrder() {
+        CanonicalActionOrder canonicalStateSpace = (CanonicalActionOrder) stateSpace;
+        NodeStore nodes = new NodeStore(stateSpace);
+        IntOpenList openList = createIntOpenList(openListType);
+        int root = addRootNode(nodes);
+        openList.add(root, priority(nodes, root));
+        peakOpenListSize = 1;
+
+        while(!openList.isEmpty()) {
+            int node = openList.poll();
+            State state = nodes.state(node);
+            expandedNodes++;
+            if (stateSpace.isGoal(state)) {
+                expandedNodes--;
+                return nodes.extractPath(node);
+            }
+            for (ActionStatePair actionStatePair : canonicalStateSpace.succ(state, nodes.action(node))) {
+                int child = addChildNode(nodes, node, actionStatePair);
+                openList.add(child, priority(nodes, child));
+                generatedNodes++;
+            }
+            peakOpenListSize = Math.max(peakOpenListSize, openList.size());
+            reportProgress(openList.size(), 0, priority(nodes, node));
         }
-        Collections.reverse(path);
-        return path;
+        return null;
     }
 
-    class SearchNode {
-        SearchNode parent;
-        Action action;
-        State state;
-        int cost;
-        int h;
+    /*
+      Anytime weighted A* (ARA*, Likhachev et al. 2003), selected with
+      --anytime. The search starts with the h value multiplier of the
+      command line and lowers it by --anytime-step (default 1) after every
+      iteration, down to the g value multiplier. Every iteration continues
+      the previous one instead of starting over:
+
+      - States whose g value decreases after they were expanded in the
+        current iteration are not expanded again, but kept in an
+        inconsistent list. They are put back into the open list at the
+        start of the next iteration.
+      - An iteration ends as soon as no open node has a lower priority
+        than the best solution found so far.
 
-        SearchNode(SearchNode parent, Action action, State state, StateSpace stateSpace) {
-            this.parent = parent;
-            this.action = action;
-            this.state = state;
-            this.cost = parent.cost + stateSpace.cost(action);
-            this.h = stateSpace.h(state);
+      After every iteration that found a cheaper solution or tightened the
+      bound, the solution is passed to solutionFound() together with an
+      upper bound on the ratio of its cost to the optimal cost. The last
+      iteration (with equal multipliers) finds an optimal solution if the
+      heuristic is admissible and consistent. If the search is stopped
+      by a limit (see setLimits), the best solution found so far is
+      returned.
+    */
+    private ArrayList<Action> runAnytime() {
+        long timeStart = System.nanoTime();
+        NodeStore nodes = new NodeStore(stateSpace);
+        GValueTable bestG = createGValueTable();
+        int root = addRootNode(nodes);
+        bestG.put(stateSpace.init(), 0);
+        int incumbent = stateSpace.isGoal(stateSpace.init()) ? root : NodeStore.NO_NODE;
+        int reportedCost = Integer.MAX_VALUE;
+        double reportedBound = Double.POSITIVE_INFINITY;
+        int searchedWeight = hMultiplier;
+        int[] inconsistent = new int[16];
+        int inconsistentSize = 0;
+        inconsistent[inconsistentSize++] = root;
+
+        try {
+            for (int weight = hMultiplier; ; weight = Math.max(gMultiplier, weight - anytimeStep)) {
+                /*
+                  Rebuild the open list with the new weight from the nodes of
+                  the previous one and the inconsistent list, skipping nodes
+                  that were superseded by a cheaper path.
+                */
+                IntOpenList openList = createIntOpenList(openListType);
+                int minF = Integer.MAX_VALUE;
+                for (int i = 0; i < inconsistentSize; i++) {
+                    int node = inconsistent[i];
+                    if (nodes.g(node) > bestG.get(nodes.state(node))) {
+                        nodes.release(node);
+                        continue;
+                    }
+                    openList.add(node, anytimePriority(nodes, node, weight));
+                    minF = Math.min(minF, nodes.g(node) + nodes.h(node));
+                }
+                inconsistentSize = 0;
+
+                if (incumbent != NodeStore.NO_NODE) {
+                    double bound = suboptimalityBound(nodes.g(incumbent), minF, searchedWeight);
+                    if (nodes.g(incumbent) < reportedCost || bound < reportedBound) {
+                        reportedCost = nodes.g(incumbent);
+                        reportedBound = bound;
+                        solutionFound(nodes.extractPath(incumbent), reportedCost, bound,
+                                      System.nanoTime() - timeStart);
+                    }
+                }
+                if (openList.isEmpty() || (incumbent != NodeStore.NO_NODE && nodes.g(incumbent) <= minF)) {
+                    break;
+                }
+
+                ClosedList closed = createClosedList();
+                while (!openList.isEmpty() && (incumbent == NodeStore.NO_NODE ||
+                        gMultiplier * nodes.g(incumbent) > openList.minPriority())) {
+                    int node = openList.poll();
+                    State state = nodes.state(node);
+                    if (nodes.g(node) > bestG.get(state) || !closed.add(state)) {
+                        nodes.release(node);
+                        prunedDuplicates++;
+                        continue;
+                    }
+                    expandedNodes++;
+                    for (ActionStatePair actionStatePair : stateSpace.succ(state)) {
+                        generatedNodes++;
+                        int g = nodes.g(node) + stateSpace.cost(actionStatePair.action);
+                        if (g >= bestG.get(actionStatePair.state)) {
+                            prunedDuplicates++;
+                            continue;
+                        }
+                        bestG.put(actionStatePair.state, g);
+                        int child = addChildNode(nodes, node, actionStatePair);
+                        if (nodes.h(child) == Integer.MAX_VALUE) {
+                            nodes.release(child);
+                            continue;
+                        }
+                        if (stateSpace.isGoal(actionStatePair.state)) {
+                            incumbent = child;
+                        }
+                        if (closed.contains(actionStatePair.state)) {
+                            if (inconsistentSize == inconsistent.length) {
+                                inconsistent = Arrays.copyOf(inconsistent, 2 * inconsistentSize);
+                            }
+                            inconsistent[inconsistentSize++] = child;
+                        } else {
+                            openList.add(child, anytimePriority(nodes, child, weight));
+                        }
+                    }
+                    peakOpenListSize = Math.max(peakOpenListSize, openList.size() + inconsistentSize);
+                    reportProgress(openList.size(), closed.size(), anytimePriority(nodes, node, weight));
+                }
+                searchedWeight = weight;
+                if (weight == gMultiplier) {
+                    if (incumbent != NodeStore.NO_NODE && reportedBound > 1.0) {
+                        reportedCost = nodes.g(incumbent);
+                        solutionFound(nodes.extractPath(incumbent), reportedCost, 1.0,
+                                      System.nanoTime() - timeStart);
+                    }
+                    break;
+                }
+
+                // The next iteration starts from the remaining open nodes.
+                while (!openList.isEmpty()) {
+                    if (inconsistentSize == inconsistent.length) {
+                        inconsistent = Arrays.copyOf(inconsistent, 2 * inconsistentSize);
+                    }
+                    inconsistent[inconsistentSize++] = openList.poll();
+                }
+            }
+        } catch (SearchLimitExceededException e) {
+            if (incumbent == NodeStore.NO_NODE) {
+                throw e;
+            }
+            searchStopped(e.getMessage());
         }
+        return incumbent == NodeStore.NO_NODE ? null : nodes.extractPath(incumbent);
+    }
 
-        public SearchNode() {
+    /*
+      Bound on the suboptimality of a solution of the given cost: the
+      weight of the iteration that found it, or cost / minF if that is
+      smaller, where minF is the smallest unweighted f value of a node
+      that may still lead to a cheaper solution.
+    */
+    private double suboptimalityBound(int cost, int minF, int weight) {
+        double bound = Math.min((double) weight / gMultiplier, (double) cost / minF);
+        return Math.max(1.0, bound);
+    }
 
+    /*
+      Called by the anytime search for every solution that is cheaper
+      than the previous ones or has a tighter bound, as soon as an
+      iteration ends.
+    */
+    protected void solutionFound(ArrayList<Action> solution, int cost, double bound, long nanos) {
+        System.out.printf(Locale.ROOT, "solution cost %d, suboptimality bound %.3f, %d expanded nodes, %.3f seconds%n",
+                          cost, bound, expandedNodes, nanos / 1e9);
+    }
+
+    /* Called when the anytime search is stopped by a limit after it found a solution. */
+    protected void searchStopped(String limit) {
+        System.out.println("search stopped by " + limit + ", returning the best solution found");
+    }
+
+    private int anytimePriority(NodeStore nodes, int node, int weight) {
+        return (gMultiplier * nodes.g(node)) + (weight * nodes.h(node));
+    }
+
+    private int priority(NodeStore nodes, int node) {
+        return (gMultiplier * nodes.g(node)) + (hMultiplier * nodes.h(node));
+    }
+
+    public static void main(String[] args) {
+        BestFirstSearch search = new BestFirstSearch(args);
+        String timeLimit = Options.get(args, "time-limit", null);
+        if (timeLimit != null) {
+            search.setLimits(Long.MAX_VALUE, (long) (Double.parseDouble(timeLimit) * 1e9));
+        }
+        try {
+            search.runSearchAlgorithm();
+        } catch (SearchLimitExceededException e) {
+            System.out.println("no solution found within the " + e.getMessage());
         }
     }
+
+    private int addRootNode(NodeStore nodes) {
+        State init = stateSpace.init();
+        return nodes.add(NodeStore.NO_NODE, null, init, 0, stateSpace.h(init));
+    }
+
+    private int addChildNode(NodeStore nodes, int parent, ActionStatePair actionStatePair) {
+        int g = nodes.g(parent) + stateSpace.cost(actionStatePair.action);
+        return nodes.add(parent, actionStatePair.action, actionStatePair.state, g,
+                         stateSpace.h(actionStatePair.state));
+    }
 }
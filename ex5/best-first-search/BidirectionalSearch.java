@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+/*
+  Bidirectional uniform cost search for state spaces with an explicit
+  goal state and predecessor generation (BidirectionalStateSpace).
+
+  A forward search from the initial state and a backward search from the
+  goal state alternate, each time expanding the direction whose cheapest
+  open node is cheaper. Whenever a state has been reached in both
+  directions, the two paths form a solution, and we keep the cheapest one
+  (with cost mu). We can stop as soon as the cheapest open nodes of both
+  directions together cost at least mu: every solution not found yet has
+  to pass through an open node in each direction, so it costs at least
+  that much.
+
+  Options:
+    --open-list=<t>   open list of both directions (heap or bucket)
+
+  Usage: BidirectionalSearch <state space> <input file> [options]
+*/
+public class BidirectionalSearch extends SearchAlgorithmBase {
+    private final String openListType;
+
+    private long mu;
+    private SearchNode forwardMeetingNode;
+    private SearchNode backwardMeetingNode;
+
+    public BidirectionalSearch(String[] args) {
+        super(args);
+        if (!(stateSpace instanceof BidirectionalStateSpace)) {
+            Errors.usageError("state space does not support backward search");
+        }
+        openListType = Options.get(args, "open-list", "heap");
+    }
+
+    @Override
+    protected ArrayList<Action> run() {
+        BidirectionalStateSpace bidirectionalStateSpace = (BidirectionalStateSpace) stateSpace;
+        Direction forward = new Direction(stateSpace.init(), false);
+        Direction backward = new Direction(bidirectionalStateSpace.goal(), true);
+        mu = Long.MAX_VALUE;
+        if (stateSpace.isGoal(stateSpace.init())) {
+            return new ArrayList<>();
+        }
+
+        while (!forward.openList.isEmpty() && !backward.openList.isEmpty()) {
+            int forwardMin = forward.openList.minPriority();
+            int backwardMin = backward.openList.minPriority();
+            if ((long) forwardMin + backwardMin >= mu) {
+                break;
+            }
+            boolean expanded;
+            if (forwardMin <= backwardMin) {
+                expanded = forward.expandNext(backward);
+            } else {
+                expanded = backward.expandNext(forward);
+            }
+            if (expanded) {
+                reportProgress(forward.openList.size() + backward.openList.size(),
+                               forward.bestNodes.size() + backward.bestNodes.size(),
+                               (long) forwardMin + backwardMin);
+            }
+        }
+        System.out.println("expanded nodes forward: " + forward.expanded
+                           + ", backward: " + backward.expanded);
+
+        if (mu == Long.MAX_VALUE) {
+            return null;
+        }
+        ArrayList<Action> path = new ArrayList<>();
+        for (SearchNode node = forwardMeetingNode; node.parent != null; node = node.parent) {
+            path.add(node.action);
+        }
+        Collections.reverse(path);
+        for (SearchNode node = backwardMeetingNode; node.parent != null; node = node.parent) {
+            path.add(node.action);
+        }
+        return path;
+    }
+
+    /*
+      One search direction. For the backward direction, the action of a
+      node leads from the node's state to the state of its parent.
+    */
+    private class Direction {
+        final boolean isBackward;
+        final OpenList<SearchNode> openList = createOpenList(openListType);
+        final HashMap<State, SearchNode> bestNodes = new HashMap<>();
+        long expanded;
+
+        Direction(State start, boolean isBackward) {
+            this.isBackward = isBackward;
+            SearchNode root = new SearchNode(null, null, start, 0);
+            openList.add(root, 0);
+            bestNodes.put(start, root);
+        }
+
+        /* Returns false if the polled node was outdated and therefore not expanded. */
+        boolean expandNext(Direction other) {
+            SearchNode node = openList.poll();
+            if (node.closed || bestNodes.get(node.state) != node) {
+                prunedDuplicates++;
+                return false;
+            }
+            node.closed = true;
+            expanded++;
+            expandedNodes++;
+
+            ArrayList<ActionStatePair> neighbors;
+            if (isBackward) {
+                neighbors = ((BidirectionalStateSpace) stateSpace).pred(node.state);
+            } else {
+                neighbors = stateSpace.succ(node.state);
+            }
+            for (ActionStatePair actionStatePair : neighbors) {
+                generatedNodes++;
+                int g = node.cost + stateSpace.cost(actionStatePair.action);
+                SearchNode known = bestNodes.get(actionStatePair.state);
+                if (known != null && known.cost <= g) {
+                    prunedDuplicates++;
+                    continue;
+                }
+                SearchNode newNode = new SearchNode(node, actionStatePair.action, actionStatePair.state, g);
+                bestNodes.put(actionStatePair.state, newNode);
+                openList.add(newNode, g);
+
+                SearchNode otherNode = other.bestNodes.get(actionStatePair.state);
+                if (otherNode != null && (long) g + otherNode.cost < mu) {
+                    mu = (long) g + otherNode.cost;
+                    forwardMeetingNode = isBackward ? otherNode : newNode;
+                    backwardMeetingNode = isBackward ? newNode : otherNode;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class SearchNode {
+        final SearchNode parent;
+        final Action action;
+        final State state;
+        final int cost;
+        boolean closed;
+
+        SearchNode(SearchNode parent, Action action, State state, int cost) {
+            this.parent = parent;
+            this.action = action;
+            this.state = state;
+            this.cost = cost;
+        }
+    }
+
+    public static void main(String[] args) {
+        BidirectionalSearch search = new BidirectionalSearch(args);
+        search.runSearchAlgorithm();
+    }
+}
@@ -0,0 +1,15 @@
+import java.util.ArrayList;
+
+/*
+  Optional capability of a state space with a single explicitly known
+  goal state that can generate predecessors, so that it can be searched
+  backward from the goal as well as forward from the initial state.
+*/
+public interface BidirectionalStateSpace extends StateSpace {
+    public State goal();
+    /*
+      Returns the pairs (a, p) such that applying a in p leads to s. The
+      cost of a is the same as in the forward direction.
+    */
+    public ArrayList<ActionStatePair> pred(State s);
+}
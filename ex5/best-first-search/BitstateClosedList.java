@@ -0,0 +1,172 @@
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/*
+  Approximate closed list for state spaces that are far too large for an
+  exact one: bitstate hashing (Holzmann) with k = 1 hash functions, or a
+  Bloom filter with k > 1. A state is stored by setting the k bits that
+  its hash values select in a large bit array, and it is considered
+  contained if all of them are set. So no state is ever stored, and the
+  memory does not grow during the search; but a new state whose bits have
+  all been set by other states is wrongly taken to be a duplicate (a
+  false positive) and is pruned, so a search using this list may miss
+  states and solutions, and finds optimal solutions only if their states
+  are not omitted.
+
+  The bits are kept outside of the Java heap in direct byte buffers of at
+  most 1 GB each, so the array can be larger than 2 GB and does not have
+  to fit into -Xmx; it does need -XX:MaxDirectMemorySize to be at least
+  its size.
+
+  The k bit positions are derived from two independent 64-bit hashes of
+  the packed state by double hashing (Kirsch and Mitzenmacher, 2006).
+*/
+public class BitstateClosedList implements ClosedList {
+    private static final int BUFFER_SHIFT = 30;
+    private static final long BUFFER_MASK = (1L << BUFFER_SHIFT) - 1;
+    /* So that the number of bits fits into a long. */
+    public static final long MAX_BYTES = Long.MAX_VALUE >> 3;
+
+    private final PackedStateSpace stateSpace;
+    /* Non-null iff the canonical forms of the states are stored (see SymmetricStateSpace). */
+    private final SymmetricStateSpace symmetricStateSpace;
+    private final long[] key;
+    private final int hashes;
+    private final long numBits;
+    private final ByteBuffer[] buffers;
+    private final long[] positions;
+
+    private long size;
+    private long bitsSet;
+    /* See expectedOmissions(). */
+    private double expectedOmissions;
+
+    public BitstateClosedList(PackedStateSpace stateSpace, boolean canonical, long bytes, int hashes) {
+        if (bytes < 8 || bytes > MAX_BYTES) {
+            throw new IllegalArgumentException("bitstate table needs between 8 and " + MAX_BYTES + " bytes");
+        }
+        if (hashes < 1) {
+            throw new IllegalArgumentException("bitstate table needs at least one hash function");
+        }
+        this.stateSpace = stateSpace;
+        this.symmetricStateSpace = canonical ? (SymmetricStateSpace) stateSpace : null;
+        this.key = new long[Math.max(1, stateSpace.packedWords())];
+        this.hashes = hashes;
+        this.numBits = 8 * bytes;
+        this.positions = new long[hashes];
+        int numBuffers = (int) ((bytes + BUFFER_MASK) >>> BUFFER_SHIFT);
+        buffers = new ByteBuffer[numBuffers];
+        for (int i = 0; i < numBuffers; i++) {
+            long remaining = bytes - ((long) i << BUFFER_SHIFT);
+            buffers[i] = ByteBuffer.allocateDirect((int) Math.min(remaining, 1L << BUFFER_SHIFT));
+        }
+    }
+
+    public boolean contains(State s) {
+        computePositions(s);
+        for (long position : positions) {
+            if (!isSet(position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean add(State s) {
+        computePositions(s);
+        double p = falsePositiveProbability();
+        boolean added = false;
+        for (long position : positions) {
+            if (!isSet(position)) {
+                set(position);
+                bitsSet++;
+                added = true;
+            }
+        }
+        if (added) {
+            size++;
+            expectedOmissions += (p < 1.0) ? p / (1.0 - p) : Double.POSITIVE_INFINITY;
+        }
+        return added;
+    }
+
+    /* The number of states that were added (and not taken for duplicates). */
+    public long size() {
+        return size;
+    }
+
+    /* Probability that a new state is taken for a duplicate at this point. */
+    public double falsePositiveProbability() {
+        return Math.pow((double) bitsSet / numBits, hashes);
+    }
+
+    /*
+      Estimated number of distinct states that were pruned as false
+      positives. While the false positive probability is p, every new state
+      is omitted with probability p, so for every stored state, p / (1 - p)
+      new states are expected to have been omitted (a geometric
+      distribution). This assumes that the search keeps offering new states
+      at the same rate, and becomes infinite once the table is full.
+    */
+    public double expectedOmissions() {
+        return expectedOmissions;
+    }
+
+    /* Estimated fraction of the distinct states offered to the list that were stored. */
+    public double coverage() {
+        return size == 0 ? 1.0 : size / (size + expectedOmissions);
+    }
+
+    public void printStatistics() {
+        long bytes = numBits / 8;
+        String tableSize = (bytes % (1 << 20) == 0) ? (bytes >> 20) + " MB" : bytes + " bytes";
+        System.out.printf(Locale.ROOT, "bitstate closed list: %s, %d hash functions, %d states, %.4f%% of the bits set%n",
+                          tableSize, hashes, size, 100.0 * bitsSet / numBits);
+        System.out.printf(Locale.ROOT, "bitstate closed list: false positive probability %.3g, "
+                          + "estimated omitted states %.1f, estimated coverage %.4f%%%n",
+                          falsePositiveProbability(), expectedOmissions, 100.0 * coverage());
+    }
+
+    private void computePositions(State s) {
+        if (symmetricStateSpace != null) {
+            symmetricStateSpace.packCanonical(s, key, 0);
+        } else {
+            stateSpace.pack(s, key, 0);
+        }
+        long h1 = 0;
+        long h2 = 0;
+        for (long word : key) {
+            h1 = (h1 ^ word) * 0x9E3779B97F4A7C15L;
+            h2 = (h2 ^ word) * 0xC2B2AE3D27D4EB4FL;
+        }
+        h1 = mix(h1);
+        // The step between the positions must not be 0.
+        h2 = mix(h2 ^ 0x165667B19E3779F9L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            positions[i] = Long.remainderUnsigned(h1 + i * h2, numBits);
+        }
+    }
+
+    /* Final mixing step of MurmurHash3. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private boolean isSet(long bit) {
+        long index = bit >>> 3;
+        byte b = buffers[(int) (index >>> BUFFER_SHIFT)].get((int) (index & BUFFER_MASK));
+        return (b & (1 << (bit & 7))) != 0;
+    }
+
+    private void set(long bit) {
+        long index = bit >>> 3;
+        ByteBuffer buffer = buffers[(int) (index >>> BUFFER_SHIFT)];
+        int offset = (int) (index & BUFFER_MASK);
+        buffer.put(offset, (byte) (buffer.get(offset) | (1 << (bit & 7))));
+    }
+}
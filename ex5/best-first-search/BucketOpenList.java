@@ -0,0 +1,61 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/*
+  Open list for small non-negative integer priorities (Dial's algorithm):
+  one bucket per priority value, so add and poll take O(1) amortized time
+  instead of O(log n). The memory for the buckets grows with the largest
+  priority that is added.
+
+  Within a bucket, the most recently added item is polled first.
+*/
+public class BucketOpenList<T> implements OpenList<T> {
+    private ArrayDeque<T>[] buckets = newBuckets(64);
+    private int minPriority = Integer.MAX_VALUE;
+    private int size;
+
+    public void add(T item, int priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("negative priority: " + priority);
+        }
+        if (priority >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(2 * buckets.length, priority + 1));
+        }
+        if (buckets[priority] == null) {
+            buckets[priority] = new ArrayDeque<T>();
+        }
+        buckets[priority].addLast(item);
+        if (priority < minPriority) {
+            minPriority = priority;
+        }
+        size++;
+    }
+
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        size--;
+        return buckets[minPriority()].pollLast();
+    }
+
+    public int minPriority() {
+        while (buckets[minPriority] == null || buckets[minPriority].isEmpty()) {
+            minPriority++;
+        }
+        return minPriority;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArrayDeque<T>[] newBuckets(int capacity) {
+        return (ArrayDeque<T>[]) new ArrayDeque<?>[capacity];
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.ArrayList;
+
+/*
+  Optional capability of a state space whose actions commute (applying a
+  set of actions leads to the same state in every order) and are their
+  own inverses (applying an action twice has no effect).
+
+  Then every reachable state is reached by applying a set of actions in
+  increasing order of some fixed action order, and the search only needs
+  to consider successors via actions that come after the last applied
+  action. Since the successors then depend on the last action and not
+  only on the state, search code using this must not prune states that
+  it has seen before with a different last action.
+*/
+public interface CanonicalActionOrder extends StateSpace {
+    /*
+      Like succ(s), restricted to the actions that come after lastAction
+      in the canonical order. lastAction is null for the initial state.
+    */
+    public ArrayList<ActionStatePair> succ(State s, Action lastAction);
+    /* Returns true iff action comes after lastAction (null for the initial state). */
+    public boolean mayFollow(Action lastAction, Action action);
+}
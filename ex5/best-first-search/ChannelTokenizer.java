@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+  Reads whitespace-separated tokens line by line from a channel. The
+  tokens are parsed directly from the bytes in a reused buffer, so no
+  String or Scanner is created per line or per number.
+
+  Lines end with '\n'; all other ASCII whitespace (including '\r')
+  separates tokens within a line. The methods mirror the Scanner calls
+  used by the original text parsers, so they report the same errors.
+*/
+public class ChannelTokenizer {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean endOfInput;
+    private int lastInt;
+
+    public ChannelTokenizer(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /* Returns the next byte without consuming it, or -1 at the end of the input. */
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (endOfInput) {
+                return -1;
+            }
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                endOfInput = true;
+                return -1;
+            }
+        }
+        return buffer.get(buffer.position()) & 0xff;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0b;
+    }
+
+    /* Returns true iff there is any input left (like Scanner.hasNextLine). */
+    public boolean hasNextLine() throws IOException {
+        return peek() != -1;
+    }
+
+    /* Returns true iff a token follows on the current line. */
+    public boolean hasTokenInLine() throws IOException {
+        int c = peek();
+        while (c != -1 && c != '\n' && isWhitespace(c)) {
+            buffer.get();
+            c = peek();
+        }
+        return c != -1 && c != '\n';
+    }
+
+    /*
+      Consumes the next token of the current line and returns true iff it
+      is a number in the range of int (see lastInt). Must only be called
+      if hasTokenInLine() returned true.
+    */
+    public boolean nextIntInLine() throws IOException {
+        int c = peek();
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = (c == '-');
+            buffer.get();
+            c = peek();
+        }
+        long value = 0;
+        boolean valid = !isWhitespace(c) && c != -1;
+        while (c != -1 && !isWhitespace(c)) {
+            if (c >= '0' && c <= '9' && value <= Integer.MAX_VALUE) {
+                value = value * 10 + (c - '0');
+            } else {
+                valid = false;
+            }
+            buffer.get();
+            c = peek();
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (!valid || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return false;
+        }
+        lastInt = (int) value;
+        return true;
+    }
+
+    /* The number read by the last successful nextIntInLine(). */
+    public int lastInt() {
+        return lastInt;
+    }
+
+    /*
+      Consumes the next token of the current line and returns it. Must only
+      be called if hasTokenInLine() returned true.
+    */
+    public String nextTokenInLine() throws IOException {
+        StringBuilder token = new StringBuilder();
+        int c = peek();
+        while (c != -1 && !isWhitespace(c)) {
+            token.append((char) c);
+            buffer.get();
+            c = peek();
+        }
+        return token.toString();
+    }
+
+    /* Returns true iff the next token of the current line starts with a letter. */
+    public boolean hasWordInLine() throws IOException {
+        if (!hasTokenInLine()) {
+            return false;
+        }
+        int c = peek();
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /* Skips the rest of the current line including its '\n'. */
+    public void nextLine() throws IOException {
+        int c;
+        while ((c = peek()) != -1) {
+            buffer.get();
+            if (c == '\n') {
+                break;
+            }
+        }
+    }
+
+    /* Returns true iff a token follows, possibly on a later line (like Scanner.hasNext). */
+    public boolean hasNext() throws IOException {
+        int c = peek();
+        while (c != -1 && isWhitespace(c)) {
+            buffer.get();
+            c = peek();
+        }
+        return c != -1;
+    }
+}
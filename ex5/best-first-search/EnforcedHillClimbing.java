@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+
+/*
+  Enforced hill climbing (Hoffmann and Nebel, 2001): a greedy local
+  search on the heuristic. From the current state, a breadth-first search
+  looks for the closest state with a strictly smaller h value; the search
+  commits to the path to that state and starts over from there, until a
+  goal state is reached. On a state with a better successor, the
+  breadth-first search ends after the first expansion, so most of the
+  time this is plain hill climbing; the breadth-first search only does
+  real work to escape plateaus and local minima.
+
+  Enforced hill climbing is incomplete: if the breadth-first search finds
+  no better state (a dead end), there is no solution, even if the
+  problem is solvable. The solutions are not optimal.
+
+  Usage: EnforcedHillClimbing <state space> <input file>
+*/
+public class EnforcedHillClimbing extends SearchAlgorithmBase {
+    private long plateauSearches;
+
+    public EnforcedHillClimbing(String[] args) {
+        this(createStateSpace(args));
+        forceGf2Check = Options.has(args, "gf2-check");
+    }
+
+    EnforcedHillClimbing(StateSpace stateSpace) {
+        super(stateSpace);
+    }
+
+    @Override
+    protected ArrayList<Action> run() {
+        ArrayList<Action> solution = new ArrayList<>();
+        State current = stateSpace.init();
+        int h = stateSpace.h(current);
+        if (h == Integer.MAX_VALUE) {
+            return null;
+        }
+        while (!stateSpace.isGoal(current)) {
+            NodeStore nodes = new NodeStore(stateSpace);
+            int better = searchBetterState(nodes, current, h);
+            if (better == NodeStore.NO_NODE) {
+                System.out.println("dead end with h = " + h + " after " + solution.size() + " actions");
+                System.out.println("number of breadth-first searches: " + plateauSearches);
+                return null;
+            }
+            solution.addAll(nodes.extractPath(better));
+            current = nodes.state(better);
+            h = nodes.h(better);
+        }
+        System.out.println("number of breadth-first searches: " + plateauSearches);
+        return solution;
+    }
+
+    /*
+      Breadth-first search from start for a state with an h value below
+      h (or a goal state). Returns its node in nodes, whose root is start,
+      or NO_NODE if there is none. A successor is tested as soon as it is
+      generated.
+    */
+    private int searchBetterState(NodeStore nodes, State start, int h) {
+        plateauSearches++;
+        IntOpenList queue = createIntOpenList("bucket");
+        queue.add(nodes.add(NodeStore.NO_NODE, null, start, 0, h), 0);
+        ClosedList closed = createClosedList();
+        closed.add(start);
+        // The breadth-first search ignores the action costs: nodes.g() holds the depth.
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            State state = nodes.state(node);
+            expandedNodes++;
+            for (ActionStatePair actionStatePair : stateSpace.succ(state)) {
+                generatedNodes++;
+                if (!closed.add(actionStatePair.state)) {
+                    prunedDuplicates++;
+                    continue;
+                }
+                int succH = stateSpace.h(actionStatePair.state);
+                if (succH == Integer.MAX_VALUE) {
+                    continue;
+                }
+                int depth = nodes.g(node) + 1;
+                int child = nodes.add(node, actionStatePair.action, actionStatePair.state, depth, succH);
+                if (succH < h || stateSpace.isGoal(actionStatePair.state)) {
+                    return child;
+                }
+                queue.add(child, depth);
+            }
+            peakOpenListSize = Math.max(peakOpenListSize, queue.size());
+            reportProgress(queue.size(), closed.size(), h);
+        }
+        return NodeStore.NO_NODE;
+    }
+
+    public static void main(String[] args) {
+        EnforcedHillClimbing search = new EnforcedHillClimbing(args);
+        search.runSearchAlgorithm();
+    }
+}
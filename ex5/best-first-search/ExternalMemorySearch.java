@@ -0,0 +1,694 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/*
+  External-memory A* with delayed duplicate detection (Korf, 2004;
+  Edelkamp, Jabbar and Schroedl, 2004). The open and closed lists are
+  kept in files, so the search is limited by the disk instead of the
+  heap.
+
+  The nodes are bucketed by their (g, h) values, and every bucket is a
+  file of packed states (see PackedStateSpace). Buckets are expanded in
+  the order of increasing f = g + h, and of increasing g among buckets of
+  the same f. Generated states are only appended to the file of their
+  bucket, without any duplicate detection; it is delayed until the bucket
+  is expanded:
+    1. The file is read in chunks of the size of the sort buffer; every
+       chunk is sorted in memory and written as a sorted run (except for
+       the last chunk, which stays in memory).
+    2. The runs are merged, which removes the duplicates within the
+       bucket, and the merged states are subtracted from the expanded
+       (closed) buckets with the same h value and a smaller or equal g
+       value; since h only depends on the state, a state can only have
+       been expanded in those buckets.
+    3. The remaining states are written to the closed file of the bucket
+       and expanded; their successors are appended to other buckets.
+  All files are read and written sequentially, in blocks.
+
+  With a consistent heuristic, a bucket never receives states once it
+  has been expanded, and the first goal state that is expanded is an
+  optimal solution. Otherwise, a bucket that receives states again is
+  simply expanded again later.
+
+  Since the files store no parent pointers, the solution is traced back
+  from the goal state with the predecessors of the state space
+  (BidirectionalStateSpace): a predecessor p of a state with g value g
+  via action a is on the solution path if it is in the closed file of
+  bucket (g - cost(a), h(p)), which is found by binary search.
+
+  The heap only has to hold the sort buffer and one write buffer per
+  bucket that has not been expanded yet. The temporary files are deleted
+  after the search.
+
+  Options:
+    --dir=<path>           directory for the temporary files (default:
+                           the temporary directory of the system)
+    --sort-buffer=<size>   memory for sorting a bucket, with an optional
+                           suffix k, m or g (default 64m)
+
+  Usage: ExternalMemorySearch <state space> <input file> [options]
+*/
+public class ExternalMemorySearch extends SearchAlgorithmBase {
+    private static final int BLOCK_BYTES = 1 << 16;
+
+    private final PackedStateSpace packedStateSpace;
+    private final int stride;
+    private final int recordBytes;
+    private final Path baseDirectory;
+    private final long sortBufferBytes;
+
+    private Path directory;
+    private int nextFileNumber;
+    /* All buckets by key(g, h). */
+    private final HashMap<Long, Bucket> buckets = new HashMap<>();
+    /* Keys of the buckets with states that are waiting to be expanded. */
+    private final TreeSet<Long> pendingKeys = new TreeSet<>();
+    /* Buckets with closed files, by h value. */
+    private final HashMap<Integer, ArrayList<Bucket>> closedBuckets = new HashMap<>();
+    private long[] sortBuffer;
+    private final long[] key;
+    private final long[] pivot;
+
+    private long pendingRecords;
+    private long closedRecords;
+    private long expandedBuckets;
+    private long diskBytes;
+    private long peakDiskBytes;
+    private long bytesWritten;
+    private long bytesRead;
+
+    /* The nodes with the same g and h value. */
+    private static class Bucket {
+        final int g;
+        final int h;
+        /* Generated states, unsorted; null if there are none. */
+        Path pendingFile;
+        long pendingRecords;
+        ByteBuffer writeBuffer;
+        /* Sorted files of the states expanded in this bucket. */
+        final ArrayList<Path> closedFiles = new ArrayList<>();
+
+        Bucket(int g, int h) {
+            this.g = g;
+            this.h = h;
+        }
+    }
+
+    /* A sequence of records in increasing order. */
+    private interface Cursor {
+        /* Moves to the next record; returns false at the end. */
+        boolean advance() throws IOException;
+        /* The current record in its first stride words. */
+        long[] record();
+    }
+
+    public ExternalMemorySearch(String[] args) {
+        super(args);
+        if (!(stateSpace instanceof PackedStateSpace)) {
+            Errors.usageError("state space does not support packed states");
+        }
+        if (!(stateSpace instanceof BidirectionalStateSpace)) {
+            Errors.usageError("state space does not support backward search");
+        }
+        packedStateSpace = (PackedStateSpace) stateSpace;
+        stride = Math.max(1, packedStateSpace.packedWords());
+        recordBytes = 8 * stride;
+        baseDirectory = Paths.get(Options.get(args, "dir", System.getProperty("java.io.tmpdir")));
+        sortBufferBytes = Options.getSize(args, "sort-buffer", "64m");
+        // The sort buffer is a single long array.
+        long maxRecords = (Integer.MAX_VALUE - 8) / stride;
+        if (sortBufferBytes < recordBytes || sortBufferBytes / recordBytes > maxRecords) {
+            Errors.usageError("--sort-buffer must hold between 1 and " + maxRecords + " states");
+        }
+        key = new long[stride];
+        pivot = new long[stride];
+    }
+
+    @Override
+    protected ArrayList<Action> run() {
+        State init = stateSpace.init();
+        int initH = stateSpace.h(init);
+        if (initH == Integer.MAX_VALUE) {
+            return null;
+        }
+        try {
+            directory = Files.createTempDirectory(baseDirectory, "external-search");
+            try {
+                return search(init, initH);
+            } finally {
+                deleteFiles();
+            }
+        } catch (IOException e) {
+            Errors.fileError("external search files in " + baseDirectory + ": " + e);
+            return null;
+        }
+    }
+
+    private ArrayList<Action> search(State init, int initH) throws IOException {
+        sortBuffer = new long[(int) (sortBufferBytes / recordBytes * stride)];
+        addState(0, initH, init);
+        long fBound = -1;
+        while (!pendingKeys.isEmpty()) {
+            Bucket bucket = buckets.get(pendingKeys.pollFirst());
+            if (bucket.g + bucket.h > fBound) {
+                fBound = bucket.g + bucket.h;
+                System.out.println("f bound " + fBound + ", expanded nodes so far: " + expandedNodes
+                                   + ", on disk: " + megabytes(diskBytes) + " MB");
+            }
+            State goal = expandBucket(bucket);
+            if (goal != null) {
+                printStatistics();
+                return extractPath(goal, bucket.g);
+            }
+        }
+        printStatistics();
+        return null;
+    }
+
+    private void printStatistics() {
+        System.out.println("number of expanded buckets: " + expandedBuckets);
+        System.out.println("peak disk usage: " + megabytes(peakDiskBytes) + " MB, written: "
+                           + megabytes(bytesWritten) + " MB, read: " + megabytes(bytesRead) + " MB");
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f", bytes / (double) (1 << 20));
+    }
+
+    private static long key(int g, int h) {
+        return ((long) (g + h) << 32) | g;
+    }
+
+    /* Appends a generated state to the file of bucket (g, h). */
+    private void addState(int g, int h, State state) throws IOException {
+        long bucketKey = key(g, h);
+        Bucket bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            bucket = new Bucket(g, h);
+            buckets.put(bucketKey, bucket);
+        }
+        if (bucket.writeBuffer == null) {
+            bucket.writeBuffer = ByteBuffer.allocate(Math.max(BLOCK_BYTES, recordBytes));
+            pendingKeys.add(bucketKey);
+        }
+        if (bucket.writeBuffer.remaining() < recordBytes) {
+            flush(bucket);
+        }
+        packedStateSpace.pack(state, key, 0);
+        for (int i = 0; i < stride; i++) {
+            bucket.writeBuffer.putLong(key[i]);
+        }
+        bucket.pendingRecords++;
+        pendingRecords++;
+    }
+
+    private void flush(Bucket bucket) throws IOException {
+        if (bucket.pendingFile == null) {
+            bucket.pendingFile = newFile();
+        }
+        bucket.writeBuffer.flip();
+        try (FileChannel channel = FileChannel.open(bucket.pendingFile, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.APPEND)) {
+            written(writeFully(channel, bucket.writeBuffer));
+        }
+        bucket.writeBuffer.clear();
+    }
+
+    /*
+      Expands the new states of a bucket (steps 1 to 3 above). Returns the
+      first goal state that is expanded, or null.
+    */
+    private State expandBucket(Bucket bucket) throws IOException {
+        flush(bucket);
+        Path input = bucket.pendingFile;
+        long inputRecords = bucket.pendingRecords;
+        bucket.pendingFile = null;
+        bucket.pendingRecords = 0;
+        bucket.writeBuffer = null;
+        pendingRecords -= inputRecords;
+        expandedBuckets++;
+
+        ArrayList<FileCursor> files = new ArrayList<>();
+        ArrayList<Path> runs = new ArrayList<>();
+        try {
+            MergeCursor candidates = new MergeCursor();
+            FileCursor reader = new FileCursor(input);
+            files.add(reader);
+            int chunkCapacity = sortBuffer.length / stride;
+            for (long remaining = inputRecords; remaining > 0; ) {
+                int records = 0;
+                while (records < chunkCapacity && reader.advance()) {
+                    System.arraycopy(reader.record(), 0, sortBuffer, records * stride, stride);
+                    records++;
+                }
+                remaining -= records;
+                sortRecords(records);
+                records = removeDuplicates(records);
+                if (remaining > 0) {
+                    Path run = newFile();
+                    runs.add(run);
+                    try (RecordWriter writer = new RecordWriter(run)) {
+                        for (int i = 0; i < records; i++) {
+                            writer.write(sortBuffer, i * stride);
+                        }
+                    }
+                    FileCursor runCursor = new FileCursor(run);
+                    files.add(runCursor);
+                    candidates.add(runCursor);
+                } else {
+                    candidates.add(new ArrayCursor(records));
+                }
+            }
+            reader.close();
+            delete(input);
+
+            MergeCursor closed = new MergeCursor();
+            for (Bucket closedBucket : closedBuckets.getOrDefault(bucket.h, new ArrayList<>())) {
+                if (closedBucket.g <= bucket.g) {
+                    for (Path closedFile : closedBucket.closedFiles) {
+                        FileCursor closedCursor = new FileCursor(closedFile);
+                        files.add(closedCursor);
+                        closed.add(closedCursor);
+                    }
+                }
+            }
+
+            Path output = newFile();
+            RecordWriter writer = new RecordWriter(output);
+            State goal;
+            try {
+                goal = expandCandidates(bucket, candidates, closed, writer);
+            } finally {
+                writer.close();
+            }
+            prunedDuplicates += candidates.duplicates;
+            addClosedFile(bucket, output, writer.records);
+            return goal;
+        } finally {
+            for (FileCursor file : files) {
+                file.close();
+            }
+            for (Path run : runs) {
+                delete(run);
+            }
+        }
+    }
+
+    private State expandCandidates(Bucket bucket, Cursor candidates, Cursor closed,
+                                   RecordWriter writer) throws IOException {
+        boolean hasClosed = closed.advance();
+        while (candidates.advance()) {
+            long[] record = candidates.record();
+            while (hasClosed && compare(closed.record(), 0, record, 0) < 0) {
+                hasClosed = closed.advance();
+            }
+            if (hasClosed && compare(closed.record(), 0, record, 0) == 0) {
+                prunedDuplicates++;
+                continue;
+            }
+            writer.write(record, 0);
+            closedRecords++;
+            State state = packedStateSpace.unpack(record, 0);
+            expandedNodes++;
+            if (stateSpace.isGoal(state)) {
+                expandedNodes--;
+                return state;
+            }
+            for (ActionStatePair actionStatePair : stateSpace.succ(state)) {
+                generatedNodes++;
+                int h = stateSpace.h(actionStatePair.state);
+                if (h == Integer.MAX_VALUE) {
+                    continue;
+                }
+                addState(bucket.g + stateSpace.cost(actionStatePair.action), h, actionStatePair.state);
+            }
+            peakOpenListSize = Math.max(peakOpenListSize, pendingRecords);
+            reportProgress(pendingRecords, closedRecords, bucket.g + bucket.h);
+        }
+        return null;
+    }
+
+    private void addClosedFile(Bucket bucket, Path file, long records) throws IOException {
+        if (records == 0) {
+            delete(file);
+            return;
+        }
+        if (bucket.closedFiles.isEmpty()) {
+            closedBuckets.computeIfAbsent(bucket.h, h -> new ArrayList<>()).add(bucket);
+        }
+        bucket.closedFiles.add(file);
+    }
+
+    /*
+      Traces the solution back from the goal state, which was reached with
+      the given g value (see the class comment).
+    */
+    private ArrayList<Action> extractPath(State goal, int g) throws IOException {
+        BidirectionalStateSpace bidirectionalStateSpace = (BidirectionalStateSpace) stateSpace;
+        long[] init = new long[stride];
+        packedStateSpace.pack(stateSpace.init(), init, 0);
+        ArrayList<Action> path = new ArrayList<>();
+        State state = goal;
+        packedStateSpace.pack(state, key, 0);
+        while (compare(key, 0, init, 0) != 0) {
+            boolean found = false;
+            for (ActionStatePair actionStatePair : bidirectionalStateSpace.pred(state)) {
+                int predG = g - stateSpace.cost(actionStatePair.action);
+                int predH = stateSpace.h(actionStatePair.state);
+                Bucket bucket = buckets.get(key(predG, predH));
+                if (predG < 0 || predH == Integer.MAX_VALUE || bucket == null) {
+                    continue;
+                }
+                packedStateSpace.pack(actionStatePair.state, key, 0);
+                if (isClosed(bucket, key)) {
+                    path.add(actionStatePair.action);
+                    state = actionStatePair.state;
+                    g = predG;
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                throw new IllegalStateException("no predecessor on the solution path");
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /* Binary search for a packed state in the closed files of a bucket. */
+    private boolean isClosed(Bucket bucket, long[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(recordBytes);
+        long[] probe = new long[stride];
+        for (Path file : bucket.closedFiles) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long low = 0;
+                long high = channel.size() / recordBytes - 1;
+                while (low <= high) {
+                    long middle = (low + high) >>> 1;
+                    buffer.clear();
+                    while (buffer.hasRemaining()
+                           && channel.read(buffer, middle * recordBytes + buffer.position()) >= 0) {
+                    }
+                    read(recordBytes);
+                    buffer.flip();
+                    for (int i = 0; i < stride; i++) {
+                        probe[i] = buffer.getLong();
+                    }
+                    int c = compare(probe, 0, record, 0);
+                    if (c == 0) {
+                        return true;
+                    } else if (c < 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private int compare(long[] a, int aOffset, long[] b, int bOffset) {
+        for (int i = 0; i < stride; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return Long.compare(a[aOffset + i], b[bOffset + i]);
+            }
+        }
+        return 0;
+    }
+
+    /* Sorts the first n records of the sort buffer. */
+    private void sortRecords(int n) {
+        if (stride == 1) {
+            Arrays.sort(sortBuffer, 0, n);
+        } else {
+            quickSort(0, n - 1);
+        }
+    }
+
+    /* Quicksort of the records low..high for multi-word records. */
+    private void quickSort(int low, int high) {
+        long[] a = sortBuffer;
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            int median;
+            if (compare(a, low * stride, a, middle * stride) < 0) {
+                median = compare(a, middle * stride, a, high * stride) < 0 ? middle
+                    : compare(a, low * stride, a, high * stride) < 0 ? high : low;
+            } else {
+                median = compare(a, low * stride, a, high * stride) < 0 ? low
+                    : compare(a, middle * stride, a, high * stride) < 0 ? high : middle;
+            }
+            System.arraycopy(a, median * stride, pivot, 0, stride);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(a, i * stride, pivot, 0) < 0) {
+                    i++;
+                }
+                while (compare(a, j * stride, pivot, 0) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swapRecords(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller part, so the stack stays logarithmic.
+            if (j - low < high - i) {
+                quickSort(low, j);
+                low = i;
+            } else {
+                quickSort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(a, (j - 1) * stride, a, j * stride) > 0; j--) {
+                swapRecords(j - 1, j);
+            }
+        }
+    }
+
+    private void swapRecords(int i, int j) {
+        long[] a = sortBuffer;
+        for (int k = 0; k < stride; k++) {
+            long t = a[i * stride + k];
+            a[i * stride + k] = a[j * stride + k];
+            a[j * stride + k] = t;
+        }
+    }
+
+    /* Removes repeated records from the first n (sorted) records; returns the new number. */
+    private int removeDuplicates(int n) {
+        if (n == 0) {
+            return 0;
+        }
+        int unique = 1;
+        for (int i = 1; i < n; i++) {
+            if (compare(sortBuffer, i * stride, sortBuffer, (unique - 1) * stride) != 0) {
+                System.arraycopy(sortBuffer, i * stride, sortBuffer, unique * stride, stride);
+                unique++;
+            }
+        }
+        prunedDuplicates += n - unique;
+        return unique;
+    }
+
+    private Path newFile() throws IOException {
+        Path file = directory.resolve("bucket" + (nextFileNumber++) + ".bin");
+        Files.createFile(file);
+        return file;
+    }
+
+    private void delete(Path file) throws IOException {
+        diskBytes -= Files.size(file);
+        Files.delete(file);
+    }
+
+    private void deleteFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private void written(long bytes) {
+        bytesWritten += bytes;
+        diskBytes += bytes;
+        peakDiskBytes = Math.max(peakDiskBytes, diskBytes);
+    }
+
+    private void read(long bytes) {
+        bytesRead += bytes;
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return bytes;
+    }
+
+    /* Writes records to a new file through a block buffer. */
+    private class RecordWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Math.max(BLOCK_BYTES, recordBytes));
+        long records;
+
+        RecordWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        }
+
+        void write(long[] words, int offset) throws IOException {
+            if (buffer.remaining() < recordBytes) {
+                buffer.flip();
+                written(writeFully(channel, buffer));
+                buffer.clear();
+            }
+            for (int i = 0; i < stride; i++) {
+                buffer.putLong(words[offset + i]);
+            }
+            records++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            buffer.flip();
+            written(writeFully(channel, buffer));
+            channel.close();
+        }
+    }
+
+    /* Reads the records of a file through a block buffer. */
+    private class FileCursor implements Cursor {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Math.max(BLOCK_BYTES, recordBytes));
+        private final long[] record = new long[stride];
+
+        FileCursor(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+        }
+
+        public boolean advance() throws IOException {
+            if (buffer.remaining() < recordBytes) {
+                buffer.compact();
+                int bytes;
+                while (buffer.hasRemaining() && (bytes = channel.read(buffer)) >= 0) {
+                    read(bytes);
+                }
+                buffer.flip();
+                if (buffer.remaining() < recordBytes) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < stride; i++) {
+                record[i] = buffer.getLong();
+            }
+            return true;
+        }
+
+        public long[] record() {
+            return record;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /* The first records of the sort buffer, which are sorted and distinct. */
+    private class ArrayCursor implements Cursor {
+        private final int records;
+        private final long[] record = new long[stride];
+        private int next;
+
+        ArrayCursor(int records) {
+            this.records = records;
+        }
+
+        public boolean advance() {
+            if (next == records) {
+                return false;
+            }
+            System.arraycopy(sortBuffer, next * stride, record, 0, stride);
+            next++;
+            return true;
+        }
+
+        public long[] record() {
+            return record;
+        }
+    }
+
+    /*
+      Merges sorted cursors into one sorted cursor without repeated
+      records; duplicates counts the records that were dropped.
+    */
+    private class MergeCursor implements Cursor {
+        private final ArrayList<Cursor> cursors = new ArrayList<>();
+        private PriorityQueue<Cursor> heap;
+        private final long[] record = new long[stride];
+        long duplicates;
+
+        void add(Cursor cursor) {
+            cursors.add(cursor);
+        }
+
+        public boolean advance() throws IOException {
+            if (heap == null) {
+                heap = new PriorityQueue<>(Math.max(1, cursors.size()),
+                                           (a, b) -> compare(a.record(), 0, b.record(), 0));
+                for (Cursor cursor : cursors) {
+                    if (cursor.advance()) {
+                        heap.add(cursor);
+                    }
+                }
+            }
+            if (heap.isEmpty()) {
+                return false;
+            }
+            System.arraycopy(heap.peek().record(), 0, record, 0, stride);
+            boolean first = true;
+            while (!heap.isEmpty() && compare(heap.peek().record(), 0, record, 0) == 0) {
+                Cursor cursor = heap.poll();
+                if (!first) {
+                    duplicates++;
+                }
+                first = false;
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+            return true;
+        }
+
+        public long[] record() {
+            return record;
+        }
+    }
+
+    public static void main(String[] args) {
+        ExternalMemorySearch search = new ExternalMemorySearch(args);
+        search.runSearchAlgorithm();
+    }
+}
@@ -0,0 +1,9 @@
+/*
+  Maps states to the cheapest path cost (g value) found for them so far.
+*/
+public interface GValueTable {
+    /* Returns the g value stored for s, or Integer.MAX_VALUE if there is none. */
+    public int get(State s);
+    public void put(State s, int g);
+    public long size();
+}
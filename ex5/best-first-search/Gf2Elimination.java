@@ -0,0 +1,240 @@
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/*
+  Solves "which actions turn state s into the goal?" for an XorStateSpace
+  by Gaussian elimination over GF(2).
+
+  Applying a set of actions to s XORs their toggle masks into s, and the
+  order does not matter. So a set x of actions is a solution iff
+  A x = s, where column j of the matrix A is the toggle mask of action j.
+  We bring the augmented matrix (A | s) into reduced row echelon form,
+  with every row packed into longs. Then s is solvable iff no row reads
+  0 = 1. The solutions are one particular solution XOR any combination
+  of the null space basis of A.
+*/
+public class Gf2Elimination {
+    /*
+      Largest null space dimension for which cheapestSolution() tries all
+      solutions (2^MAX_ENUMERATED_NULLITY of them).
+    */
+    public static final int MAX_ENUMERATED_NULLITY = 24;
+
+    private final XorStateSpace stateSpace;
+    private final int numActions;
+    private final int actionWords;
+    private final boolean solvable;
+    private final long[] particularSolution;
+    private final ArrayList<long[]> nullSpaceBasis = new ArrayList<>();
+    private boolean lastSolutionIsCheapest;
+
+    /*
+      The actions grouped by cost: costClassMembers[c] is the bit vector of
+      the actions with cost costClassCosts[c], so that the cost of a
+      solution is a sum of a few popcounts.
+    */
+    private long[][] costClassMembers;
+    private int[] costClassCosts;
+
+    public Gf2Elimination(XorStateSpace stateSpace, State s) {
+        this.stateSpace = stateSpace;
+        int numBits = stateSpace.numBits();
+        numActions = stateSpace.numActions();
+        actionWords = (numActions + 63) / 64;
+
+        // Row i is equation i: bits 0..numActions-1 are the coefficients,
+        // bit numActions is the right-hand side.
+        int rowWords = (numActions + 1 + 63) / 64;
+        long[][] rows = new long[numBits][rowWords];
+        long[] mask = new long[stateSpace.packedWords()];
+        for (int j = 0; j < numActions; j++) {
+            stateSpace.toggleMask(j, mask);
+            for (int i = 0; i < numBits; i++) {
+                if (testBit(mask, i)) {
+                    setBit(rows[i], j);
+                }
+            }
+        }
+        long[] bits = new long[stateSpace.packedWords()];
+        stateSpace.pack(s, bits, 0);
+        for (int i = 0; i < numBits; i++) {
+            if (testBit(bits, i)) {
+                setBit(rows[i], numActions);
+            }
+        }
+
+        int[] pivotColumn = new int[numBits];
+        boolean[] isPivot = new boolean[numActions];
+        int rank = 0;
+        for (int col = 0; col < numActions && rank < numBits; col++) {
+            int pivot = rank;
+            while (pivot < numBits && !testBit(rows[pivot], col)) {
+                pivot++;
+            }
+            if (pivot == numBits) {
+                continue;
+            }
+            long[] pivotRow = rows[pivot];
+            rows[pivot] = rows[rank];
+            rows[rank] = pivotRow;
+            for (int i = 0; i < numBits; i++) {
+                if (i != rank && testBit(rows[i], col)) {
+                    long[] row = rows[i];
+                    for (int w = 0; w < rowWords; w++) {
+                        row[w] ^= pivotRow[w];
+                    }
+                }
+            }
+            pivotColumn[rank] = col;
+            isPivot[col] = true;
+            rank++;
+        }
+
+        boolean consistent = true;
+        for (int i = rank; i < numBits; i++) {
+            if (testBit(rows[i], numActions)) {
+                consistent = false;
+                break;
+            }
+        }
+        solvable = consistent;
+
+        particularSolution = new long[actionWords];
+        for (int r = 0; r < rank; r++) {
+            if (testBit(rows[r], numActions)) {
+                setBit(particularSolution, pivotColumn[r]);
+            }
+        }
+
+        for (int free = 0; free < numActions; free++) {
+            if (isPivot[free]) {
+                continue;
+            }
+            long[] basisVector = new long[actionWords];
+            setBit(basisVector, free);
+            for (int r = 0; r < rank; r++) {
+                if (testBit(rows[r], free)) {
+                    setBit(basisVector, pivotColumn[r]);
+                }
+            }
+            nullSpaceBasis.add(basisVector);
+        }
+    }
+
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /* Dimension of the null space, i.e., there are 2^nullity solutions. */
+    public int nullity() {
+        return nullSpaceBasis.size();
+    }
+
+    /*
+      Returns the set of actions (as a bit vector over the action indices)
+      with minimal total cost that solves the system, or null if there is
+      none. Up to MAX_ENUMERATED_NULLITY, all solutions are enumerated in
+      Gray code order (one XOR per solution). Beyond that, the particular
+      solution is improved greedily by adding basis vectors as long as
+      this makes it cheaper; isCheapest() then returns false.
+    */
+    public long[] cheapestSolution() {
+        if (!solvable) {
+            return null;
+        }
+        if (costClassMembers == null) {
+            buildCostClasses();
+        }
+
+        long[] current = particularSolution.clone();
+        long[] best = current.clone();
+        int bestCost = cost(current);
+        int d = nullity();
+
+        if (d <= MAX_ENUMERATED_NULLITY) {
+            for (long i = 1; i < (1L << d); i++) {
+                long[] basisVector = nullSpaceBasis.get(Long.numberOfTrailingZeros(i));
+                for (int w = 0; w < actionWords; w++) {
+                    current[w] ^= basisVector[w];
+                }
+                int currentCost = cost(current);
+                if (currentCost < bestCost) {
+                    bestCost = currentCost;
+                    System.arraycopy(current, 0, best, 0, actionWords);
+                }
+            }
+            lastSolutionIsCheapest = true;
+        } else {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (long[] basisVector : nullSpaceBasis) {
+                    for (int w = 0; w < actionWords; w++) {
+                        current[w] = best[w] ^ basisVector[w];
+                    }
+                    int currentCost = cost(current);
+                    if (currentCost < bestCost) {
+                        bestCost = currentCost;
+                        System.arraycopy(current, 0, best, 0, actionWords);
+                        improved = true;
+                    }
+                }
+            }
+            lastSolutionIsCheapest = false;
+        }
+        return best;
+    }
+
+    /* Whether the last result of cheapestSolution() is known to be optimal. */
+    public boolean isCheapest() {
+        return lastSolutionIsCheapest;
+    }
+
+    /* Converts a solution bit vector into the list of its actions. */
+    public ArrayList<Action> toActions(long[] solution) {
+        ArrayList<Action> result = new ArrayList<>();
+        for (int j = 0; j < numActions; j++) {
+            if (testBit(solution, j)) {
+                result.add(stateSpace.getAction(j));
+            }
+        }
+        return result;
+    }
+
+    private void buildCostClasses() {
+        TreeMap<Integer, long[]> classes = new TreeMap<>();
+        for (int j = 0; j < numActions; j++) {
+            int cost = stateSpace.cost(stateSpace.getAction(j));
+            setBit(classes.computeIfAbsent(cost, c -> new long[actionWords]), j);
+        }
+        costClassMembers = new long[classes.size()][];
+        costClassCosts = new int[classes.size()];
+        int c = 0;
+        for (Integer cost : classes.keySet()) {
+            costClassMembers[c] = classes.get(cost);
+            costClassCosts[c] = cost;
+            c++;
+        }
+    }
+
+    private int cost(long[] solution) {
+        int total = 0;
+        for (int c = 0; c < costClassMembers.length; c++) {
+            long[] members = costClassMembers[c];
+            int count = 0;
+            for (int w = 0; w < actionWords; w++) {
+                count += Long.bitCount(solution[w] & members[w]);
+            }
+            total += costClassCosts[c] * count;
+        }
+        return total;
+    }
+
+    private static boolean testBit(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void setBit(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+}
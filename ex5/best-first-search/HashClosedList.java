@@ -0,0 +1,20 @@
+import java.util.HashSet;
+
+/*
+  Closed list for arbitrary states, based on hashCode() and equals().
+*/
+public class HashClosedList implements ClosedList {
+    private final HashSet<State> closed = new HashSet<>();
+
+    public boolean contains(State s) {
+        return closed.contains(s);
+    }
+
+    public boolean add(State s) {
+        return closed.add(s);
+    }
+
+    public long size() {
+        return closed.size();
+    }
+}
@@ -0,0 +1,21 @@
+import java.util.HashMap;
+
+/*
+  g value table for arbitrary states, based on hashCode() and equals().
+*/
+public class HashGValueTable implements GValueTable {
+    private final HashMap<State, Integer> table = new HashMap<>();
+
+    public int get(State s) {
+        Integer g = table.get(s);
+        return g == null ? Integer.MAX_VALUE : g;
+    }
+
+    public void put(State s, int g) {
+        table.put(s, g);
+    }
+
+    public long size() {
+        return table.size();
+    }
+}
@@ -0,0 +1,10 @@
+/*
+  Optional capability of a state space that maintains a 64-bit hash
+  value with every state, so that hash tables of states do not have to
+  hash the complete state on every lookup. Equal states must have equal
+  hash values; the hash values should be spread over all 64 bits.
+*/
+public interface HashedStateSpace extends StateSpace {
+    /* The hash value of s, in constant time. */
+    public long hash64(State s);
+}
@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+/*
+  Open list based on a binary heap, with O(log n) add and poll.
+
+  The priorities are stored next to the items, so no comparator has to
+  recompute them. Sifting follows java.util.PriorityQueue, so ties are
+  broken in the same order as before.
+*/
+public class HeapOpenList<T> implements OpenList<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] items = new Object[INITIAL_CAPACITY];
+    private int[] priorities = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(T item, int priority) {
+        if (size == items.length) {
+            int capacity = 2 * items.length;
+            items = Arrays.copyOf(items, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+        }
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (priority >= priorities[parent]) {
+                break;
+            }
+            items[k] = items[parent];
+            priorities[k] = priorities[parent];
+            k = parent;
+        }
+        items[k] = item;
+        priorities[k] = priority;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T result = (T) items[0];
+        int n = --size;
+        Object item = items[n];
+        int priority = priorities[n];
+        items[n] = null;
+        if (n > 0) {
+            int k = 0;
+            int half = n >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int right = child + 1;
+                if (right < n && priorities[child] > priorities[right]) {
+                    child = right;
+                }
+                if (priority <= priorities[child]) {
+                    break;
+                }
+                items[k] = items[child];
+                priorities[k] = priorities[child];
+                k = child;
+            }
+            items[k] = item;
+            priorities[k] = priority;
+        }
+        return result;
+    }
+
+    public int minPriority() {
+        return priorities[0];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,17 @@
+/*
+  Optional capability of a state space that can apply actions to a state
+  in place, so that depth-first search code can walk the state space with
+  a single state object instead of creating a new state per successor.
+
+  Only states returned by copyState() may be modified; all other states
+  (e.g., those returned by init() and succ()) must be left unchanged.
+*/
+public interface InPlaceStateSpace extends StateSpace {
+    /* Returns a copy of s that can be modified by apply() and undo(). */
+    public State copyState(State s);
+    /* The actions applicable in s. The caller must not modify the array. */
+    public Action[] applicableActions(State s);
+    public void apply(State s, Action a);
+    /* Reverts apply(s, a). */
+    public void undo(State s, Action a);
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+/*
+  BucketOpenList for int items. Every bucket is an int array used as a
+  stack, so within a bucket the most recently added item is polled first,
+  as in BucketOpenList.
+*/
+public class IntBucketOpenList implements IntOpenList {
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    private int[][] buckets = new int[64][];
+    private int[] bucketSizes = new int[64];
+    private int minPriority = Integer.MAX_VALUE;
+    private int size;
+
+    public void add(int item, int priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("negative priority: " + priority);
+        }
+        if (priority >= buckets.length) {
+            int capacity = Math.max(2 * buckets.length, priority + 1);
+            buckets = Arrays.copyOf(buckets, capacity);
+            bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+        }
+        int[] bucket = buckets[priority];
+        if (bucket == null) {
+            bucket = buckets[priority] = new int[INITIAL_BUCKET_CAPACITY];
+        } else if (bucketSizes[priority] == bucket.length) {
+            bucket = buckets[priority] = Arrays.copyOf(bucket, 2 * bucket.length);
+        }
+        bucket[bucketSizes[priority]++] = item;
+        if (priority < minPriority) {
+            minPriority = priority;
+        }
+        size++;
+    }
+
+    public int poll() {
+        int priority = minPriority();
+        size--;
+        return buckets[priority][--bucketSizes[priority]];
+    }
+
+    public int minPriority() {
+        while (bucketSizes[minPriority] == 0) {
+            minPriority++;
+        }
+        return minPriority;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.Arrays;
+
+/*
+  HeapOpenList for int items: the same binary heap with the same sifting,
+  so ties are broken in the same order.
+*/
+public class IntHeapOpenList implements IntOpenList {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] items = new int[INITIAL_CAPACITY];
+    private int[] priorities = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(int item, int priority) {
+        if (size == items.length) {
+            int capacity = 2 * items.length;
+            items = Arrays.copyOf(items, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+        }
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (priority >= priorities[parent]) {
+                break;
+            }
+            items[k] = items[parent];
+            priorities[k] = priorities[parent];
+            k = parent;
+        }
+        items[k] = item;
+        priorities[k] = priority;
+    }
+
+    public int poll() {
+        int result = items[0];
+        int n = --size;
+        int item = items[n];
+        int priority = priorities[n];
+        if (n > 0) {
+            int k = 0;
+            int half = n >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int right = child + 1;
+                if (right < n && priorities[child] > priorities[right]) {
+                    child = right;
+                }
+                if (priority <= priorities[child]) {
+                    break;
+                }
+                items[k] = items[child];
+                priorities[k] = priorities[child];
+                k = child;
+            }
+            items[k] = item;
+            priorities[k] = priority;
+        }
+        return result;
+    }
+
+    public int minPriority() {
+        return priorities[0];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,13 @@
+/*
+  An open list of node indices (see NodeStore): like OpenList, but the
+  items are ints, so no Integer object is allocated per entry.
+*/
+public interface IntOpenList {
+    public void add(int item, int priority);
+    /* Removes an item with minimal priority; only defined if the list is not empty. */
+    public int poll();
+    /* The minimal priority of all items; only defined if the list is not empty. */
+    public int minPriority();
+    public boolean isEmpty();
+    public int size();
+}
@@ -0,0 +1,12 @@
+/*
+  Thrown when an input file cannot be read or does not describe a valid
+  instance. Command line programs report the message with
+  Errors.fileError; programs that read many inputs report it per input.
+*/
+public class InvalidInputException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidInputException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+/*
+  Optional capability of a state space that knows the inverse of its
+  actions: applying inverse(a) right after a leads back to the state
+  before a. Depth-first search uses this to avoid walking straight back
+  along the edge it came from (e.g., pressing the same lights-out cell
+  twice in a row).
+*/
+public interface InvertibleActions extends StateSpace {
+    /* The action that undoes a, or null if there is none. */
+    public Action inverse(Action a);
+}
@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+
+/*
+  Iterative deepening A* (IDA*): a series of depth-first searches, each
+  bounded by an f = g + h value, where the next bound is the smallest f
+  value that exceeded the previous one. Only the current path is stored,
+  so the memory is linear in the solution depth.
+
+  If the state space supports it (InPlaceStateSpace), successors are
+  generated by applying and undoing actions on a single state. If it
+  knows the inverses of its actions (InvertibleActions), the inverse of
+  the last action is never applied, since it only leads back to the
+  parent; otherwise every path could undo itself at every step.
+
+  Options:
+    --canonical-order  only apply actions in the canonical order of the
+                       state space (see CanonicalActionOrder)
+    --tt-size=<n>      use a transposition table with n entries to prune
+                       states already reached more cheaply in the same
+                       iteration (requires a PackedStateSpace)
+
+  Usage: IterativeDeepeningAStar <state space> <input file> [options]
+*/
+public class IterativeDeepeningAStar extends SearchAlgorithmBase {
+    private final boolean useCanonicalActionOrder;
+    /* Non-null iff the inverse of the last action is skipped. */
+    private final InvertibleActions invertibleActions;
+    private TranspositionTable transpositionTable;
+
+    private ArrayList<Action> path = new ArrayList<>();
+    private long bound;
+    private long nextBound;
+    private long prunedNodes;
+
+    public IterativeDeepeningAStar(String[] args) {
+        super(args);
+        useCanonicalActionOrder = Options.has(args, "canonical-order");
+        if (useCanonicalActionOrder && !(stateSpace instanceof CanonicalActionOrder)) {
+            Errors.usageError("state space does not support --canonical-order");
+        }
+        // The canonical order already excludes going back, and more.
+        if (!useCanonicalActionOrder && stateSpace instanceof InvertibleActions) {
+            invertibleActions = (InvertibleActions) stateSpace;
+        } else {
+            invertibleActions = null;
+        }
+        String ttSize = Options.get(args, "tt-size", null);
+        if (ttSize != null) {
+            if (!(stateSpace instanceof PackedStateSpace)) {
+                Errors.usageError("state space does not support a transposition table");
+            }
+            if (useCanonicalActionOrder) {
+                // With canonical order, the successors depend on the last
+                // action, so reaching a state again is no reason to prune it.
+                Errors.usageError("--tt-size cannot be combined with --canonical-order");
+            }
+            transpositionTable = new TranspositionTable((PackedStateSpace) stateSpace, Integer.parseInt(ttSize));
+        }
+    }
+
+    @Override
+    protected ArrayList<Action> run() {
+        State init = stateSpace.init();
+        if (stateSpace instanceof InPlaceStateSpace) {
+            init = ((InPlaceStateSpace) stateSpace).copyState(init);
+        }
+        bound = stateSpace.h(init);
+        while (bound != Integer.MAX_VALUE) {
+            System.out.println("f bound " + bound + ", expanded nodes so far: " + expandedNodes);
+            nextBound = Long.MAX_VALUE;
+            if (transpositionTable != null) {
+                transpositionTable.nextIteration();
+            }
+            if (search(init, 0, null)) {
+                if (transpositionTable != null) {
+                    System.out.println("nodes pruned by transposition table: " + prunedNodes);
+                }
+                return path;
+            }
+            if (nextBound >= Integer.MAX_VALUE) {
+                break;
+            }
+            bound = nextBound;
+        }
+        return null;
+    }
+
+    /*
+      Depth-first search below s, which was reached with cost g via
+      lastAction. Returns true if a goal was found; the path to it is then
+      stored in "path".
+    */
+    private boolean search(State s, int g, Action lastAction) {
+        int h = stateSpace.h(s);
+        if (h == Integer.MAX_VALUE) {
+            return false;
+        }
+        long f = (long) g + h;
+        if (f > bound) {
+            nextBound = Math.min(nextBound, f);
+            return false;
+        }
+        if (stateSpace.isGoal(s)) {
+            return true;
+        }
+        if (transpositionTable != null && transpositionTable.isDominated(s, g)) {
+            prunedNodes++;
+            prunedDuplicates++;
+            return false;
+        }
+        expandedNodes++;
+        reportProgress(path.size(), 0, bound);
+        Action backToParent = (invertibleActions != null && lastAction != null)
+            ? invertibleActions.inverse(lastAction) : null;
+
+        if (stateSpace instanceof InPlaceStateSpace) {
+            InPlaceStateSpace inPlaceStateSpace = (InPlaceStateSpace) stateSpace;
+            for (Action action : inPlaceStateSpace.applicableActions(s)) {
+                if (useCanonicalActionOrder && !((CanonicalActionOrder) stateSpace).mayFollow(lastAction, action)) {
+                    continue;
+                }
+                if (action == backToParent) {
+                    continue;
+                }
+                inPlaceStateSpace.apply(s, action);
+                path.add(action);
+                boolean found = search(s, g + stateSpace.cost(action), action);
+                if (found) {
+                    return true;
+                }
+                path.remove(path.size() - 1);
+                inPlaceStateSpace.undo(s, action);
+            }
+        } else {
+            ArrayList<ActionStatePair> successors;
+            if (useCanonicalActionOrder) {
+                successors = ((CanonicalActionOrder) stateSpace).succ(s, lastAction);
+            } else {
+                successors = stateSpace.succ(s);
+            }
+            for (ActionStatePair actionStatePair : successors) {
+                if (actionStatePair.action == backToParent) {
+                    continue;
+                }
+                path.add(actionStatePair.action);
+                if (search(actionStatePair.state, g + stateSpace.cost(actionStatePair.action), actionStatePair.action)) {
+                    return true;
+                }
+                path.remove(path.size() - 1);
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        IterativeDeepeningAStar search = new IterativeDeepeningAStar(args);
+        search.runSearchAlgorithm();
+    }
+}
@@ -6,74 +6,174 @@
   and can be used without change for other search problems.
 */
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Scanner;
+import java.util.Random;
 import java.util.Set;
 
-public class LightsOutStateSpace implements StateSpace {
+public class LightsOutStateSpace implements XorStateSpace, CanonicalActionOrder, InPlaceStateSpace,
+        BidirectionalStateSpace, SymmetricStateSpace, HashedStateSpace, InvertibleActions {
     /*
       We make lights-out states and actions private since the search code
       cannot and should not look into the state.
     */
 
-    private static class LightsOutState implements State {
+    private static abstract class LightsOutState implements State {
         /*
-          A state is represented as a two-dimensional array of booleans, 
-          representing the grid of lights, where "true" means the light is on
-          and "false" that the light is off. 
+          A state is represented as a bit vector over the grid of lights,
+          where bit x*dimy+y is set iff the light (x, y) is on. Grids with
+          at most 64 cells fit into a single long (SmallLightsOutState);
+          larger grids use an array of longs (LargeLightsOutState).
+          The dimensions are only stored for printing.
         */
-        public ArrayList<ArrayList<Boolean>> lights;
+        protected final int dimx;
+        protected final int dimy;
 
-        public LightsOutState(ArrayList<ArrayList<Boolean>> lights) {
+        protected LightsOutState(int dimx, int dimy) {
+            this.dimx = dimx;
+            this.dimy = dimy;
+        }
+
+        public abstract boolean isLit(int cell);
+
+        public String toString() {
+            StringBuilder result = new StringBuilder("\n");
+            for (int x = 0; x < dimx; x++) {
+                for (int y = 0; y < dimy; y++) {
+                    if (isLit(x*dimy+y)) {
+                        result.append("1 ");
+                    } else {
+                        result.append("0 ");
+                    }
+                }
+                result.append("\n");
+            }
+            return result.toString();
+        }
+    }
+
+    private static class SmallLightsOutState extends LightsOutState {
+        public long lights;
+
+        public SmallLightsOutState(int dimx, int dimy, long lights) {
+            super(dimx, dimy);
             this.lights = lights;
         }
 
+        public boolean isLit(int cell) {
+            return (lights & (1L << cell)) != 0;
+        }
+
         @Override
         public boolean equals(Object o) {
-            if (!(o instanceof LightsOutState)) {
+            if (!(o instanceof SmallLightsOutState)) {
                 return false;
             }
-            LightsOutState other = (LightsOutState)o;
-            return lights.equals(other.lights);
+            SmallLightsOutState other = (SmallLightsOutState)o;
+            return lights == other.lights;
         }
 
         @Override
         public int hashCode() {
-            return lights.hashCode();
+            return Long.hashCode(lights);
         }
+    }
 
-        public String toString() {
-            String result = "\n";
-            for (int x = 0; x < lights.size(); x++) {
-                for (int y = 0; y < lights.get(x).size(); y++) {
-                    if (lights.get(x).get(y)) {
-                        result += "1 ";
-                    } else {
-                        result += "0 ";
-                    }
-                }
-              result += "\n";
+    private static class LargeLightsOutState extends LightsOutState {
+        public final long[] lights;
+        /*
+          Zobrist hash of the lights: the XOR of zobristKey(cell) over all
+          cells that are on. Toggles update it with the precomputed XOR of
+          the keys of their cells (LightsOutAction.zobrist), so it never has
+          to be recomputed from the lights.
+        */
+        public long hash;
+
+        public LargeLightsOutState(int dimx, int dimy, long[] lights) {
+            this(dimx, dimy, lights, zobristHash(lights));
+        }
+
+        public LargeLightsOutState(int dimx, int dimy, long[] lights, long hash) {
+            super(dimx, dimy);
+            this.lights = lights;
+            this.hash = hash;
+        }
+
+        public boolean isLit(int cell) {
+            return (lights[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LargeLightsOutState)) {
+                return false;
             }
-            return result;
+            LargeLightsOutState other = (LargeLightsOutState)o;
+            return hash == other.hash && Arrays.equals(lights, other.lights);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
         }
     }
 
     private static class LightsOutAction implements Action {
         /*
-          Every action is defined by the number position of the toggled light
+          Every action is defined by the number position of the toggled light.
+          The toggled cells are precomputed as XOR masks: "mask" for grids
+          with at most 64 cells, and the non-zero words of the mask
+          ("maskWords" holds their indices, "maskBits" their values) for
+          larger grids.
         */
 
         private int x;
         private int y;
+        private int index;
         private int cost;
+        private long mask;
+        private int[] maskWords;
+        private long[] maskBits;
+        private long zobrist;
 
-        public LightsOutAction(int x, int y, int cost) {
+        /*
+          Only the words fromWord to toWord (exclusive) of toggleMask may be
+          non-zero; this keeps building the actions of large grids linear.
+        */
+        public LightsOutAction(int x, int y, int index, int cost, long[] toggleMask,
+                               int fromWord, int toWord) {
             this.x = x;
             this.y = y;
+            this.index = index;
             this.cost = cost;
+
+            int nonZero = 0;
+            for (int word = fromWord; word < toWord; word++) {
+                if (toggleMask[word] != 0) {
+                    nonZero++;
+                }
+            }
+            maskWords = new int[nonZero];
+            maskBits = new long[nonZero];
+            int i = 0;
+            for (int word = fromWord; word < toWord; word++) {
+                if (toggleMask[word] != 0) {
+                    maskWords[i] = word;
+                    maskBits[i] = toggleMask[word];
+                    zobrist ^= zobristHash(word, toggleMask[word]);
+                    i++;
+                }
+            }
+            if (toggleMask.length > 0) {
+                mask = toggleMask[0];
+            }
         }
 
         public int cost() {
@@ -94,14 +194,24 @@ public class LightsOutStateSpace implements StateSpace {
     private int dimy;
     private LightsOutState initialState;
     private LightsOutAction actions[];
+    private PatternDatabase patternDatabase;
+    /* zobristKey(cell) of every cell, for unpack. */
+    private final long[] zobristKeys;
+    /* Rows and columns of the grid for packCanonical; one pair per search thread. */
+    private final ThreadLocal<long[]> symmetryScratch = ThreadLocal.withInitial(() -> new long[128]);
 
     private LightsOutStateSpace(int dimx, int dimy, LightsOutState initialState) {
         this.dimx = dimx;
         this.dimy = dimy;
         this.initialState = initialState;
-        System.out.println("Instantiating lights-out instance...");
+        zobristKeys = new long[dimx*dimy];
+        for (int cell = 0; cell < dimx*dimy; cell++) {
+            zobristKeys[cell] = zobristKey(cell);
+        }
 
         actions = new LightsOutAction[dimx*dimy];
+        // One mask for all actions: it is cleared again after each action.
+        long[] mask = new long[numWords(dimx, dimy)];
         for (int x = 0; x < dimx; x++) {
             for (int y = 0; y < dimy; y++) {
                 int cost = 5;
@@ -111,11 +221,91 @@ public class LightsOutStateSpace implements StateSpace {
                 if (y == 0 || y == dimy-1) {
                     cost--;
                 }
-                actions[x*dimy+y] = new LightsOutAction(x, y, cost);
+                toggleCells(x, y, mask);
+                int fromWord = (Math.max(0, x-1)*dimy) >>> 6;
+                int toWord = ((Math.min(dimx-1, x+1)*dimy + dimy - 1) >>> 6) + 1;
+                actions[x*dimy+y] = new LightsOutAction(x, y, x*dimy+y, cost, mask, fromWord, toWord);
+                toggleCells(x, y, mask);
+            }
+        }
+    }
+
+    /*
+      XORs the cells toggled by pressing (x, y), i.e., the cell itself and
+      its (up to four) orthogonal neighbors, into the bit vector lights.
+    */
+    private void toggleCells(int x, int y, long[] lights) {
+        for (int i = Math.max(0, x-1); i <= Math.min(dimx-1, x+1); i++) {
+            for (int j = Math.max(0, y-1); j <= Math.min(dimy-1, y+1); j++) {
+                if (Math.abs(i - x) + Math.abs(j - y) <= 1) {
+                    int cell = i*dimy+j;
+                    lights[cell >>> 6] ^= 1L << cell;
+                }
             }
         }
     }
 
+    /*
+      Small states are hashed by mixing their single word (the final step
+      of MurmurHash3), which is as fast as looking up a stored hash.
+    */
+    public long hash64(State s_) {
+        if (s_ instanceof SmallLightsOutState) {
+            long h = ((SmallLightsOutState) s_).lights;
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+        return ((LargeLightsOutState) s_).hash;
+    }
+
+    /*
+      Random key of a cell for Zobrist hashing, computed from the cell
+      number with the SplitMix64 generator, so no table is needed.
+    */
+    private static long zobristKey(int cell) {
+        long z = (cell + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /* XOR of the Zobrist keys of the cells whose bits are set in word number word. */
+    private static long zobristHash(int word, long bits) {
+        long hash = 0;
+        while (bits != 0) {
+            hash ^= zobristKey(64*word + Long.numberOfTrailingZeros(bits));
+            bits &= bits - 1;
+        }
+        return hash;
+    }
+
+    private static long zobristHash(long[] lights) {
+        long hash = 0;
+        for (int word = 0; word < lights.length; word++) {
+            hash ^= zobristHash(word, lights[word]);
+        }
+        return hash;
+    }
+
+    private static int numWords(int dimx, int dimy) {
+        return (dimx*dimy + 63) / 64;
+    }
+
+    /*
+      Creates a state from a bit vector with numWords(dimx, dimy) words,
+      choosing the packed representation that fits the grid size.
+    */
+    private static LightsOutState createState(int dimx, int dimy, long[] lights) {
+        if (dimx*dimy <= 64) {
+            return new SmallLightsOutState(dimx, dimy, lights.length == 0 ? 0 : lights[0]);
+        }
+        return new LargeLightsOutState(dimx, dimy, lights);
+    }
+
     /*
       The following four methods define the interface of state spaces
       used by the search code.
@@ -136,18 +326,19 @@ public class LightsOutStateSpace implements StateSpace {
     }
 
     public boolean isGoal(State s_) {
-        LightsOutState s = (LightsOutState) s_;
-
         /*
           The (only) goal state of the lights-out problem is the one where
           all lights are off
         */
 
-        for (int x = 0; x < dimx; x++) {
-            for (int y = 0; y < dimy; y++) {
-                if (s.lights.get(x).get(y)) {
-                    return false;
-                }
+        if (s_ instanceof SmallLightsOutState) {
+            return ((SmallLightsOutState) s_).lights == 0;
+        }
+
+        LargeLightsOutState s = (LargeLightsOutState) s_;
+        for (long word : s.lights) {
+            if (word != 0) {
+                return false;
             }
         }
 
@@ -165,30 +356,95 @@ public class LightsOutStateSpace implements StateSpace {
         return result;
     }
 
+    /*
+      Toggles commute and are their own inverses, so we can use the order
+      of the actions array as canonical order: after toggling a light, we
+      only toggle lights with a larger index.
+    */
+    public ArrayList<ActionStatePair> succ(State s_, Action lastAction_) {
+        LightsOutState s = (LightsOutState) s_;
+        LightsOutAction lastAction = (LightsOutAction) lastAction_;
+
+        int first = (lastAction == null) ? 0 : lastAction.index + 1;
+        ArrayList<ActionStatePair> result = new ArrayList<ActionStatePair>(actions.length - first);
+
+        for (int i = first; i < actions.length; i++) {
+            result.add(createSuccessor(s, actions[i]));
+        }
+        return result;
+    }
+
+    /*
+      The goal state has all lights off. Since every toggle is its own
+      inverse, the predecessors of a state are its successors.
+    */
+    public State goal() {
+        return createState(dimx, dimy, new long[numWords(dimx, dimy)]);
+    }
+
+    public ArrayList<ActionStatePair> pred(State s) {
+        return succ(s);
+    }
+
+    public boolean mayFollow(Action lastAction, Action action) {
+        return lastAction == null || ((LightsOutAction) action).index > ((LightsOutAction) lastAction).index;
+    }
+
+    /*
+      For depth-first search, toggles can also be applied to a copy of a
+      state in place. Since every toggle is its own inverse, undo is the
+      same as apply.
+    */
+    public State copyState(State s_) {
+        if (s_ instanceof SmallLightsOutState) {
+            return new SmallLightsOutState(dimx, dimy, ((SmallLightsOutState) s_).lights);
+        }
+        LargeLightsOutState s = (LargeLightsOutState) s_;
+        return new LargeLightsOutState(dimx, dimy, s.lights.clone(), s.hash);
+    }
+
+    public Action[] applicableActions(State s) {
+        return actions;
+    }
+
+    public void apply(State s_, Action a_) {
+        LightsOutAction action = (LightsOutAction) a_;
+        if (s_ instanceof SmallLightsOutState) {
+            ((SmallLightsOutState) s_).lights ^= action.mask;
+        } else {
+            LargeLightsOutState s = (LargeLightsOutState) s_;
+            for (int i = 0; i < action.maskWords.length; i++) {
+                s.lights[action.maskWords[i]] ^= action.maskBits[i];
+            }
+            s.hash ^= action.zobrist;
+        }
+    }
+
+    public void undo(State s, Action a) {
+        apply(s, a);
+    }
+
+    /* Every toggle is its own inverse. */
+    public Action inverse(Action a) {
+        return a;
+    }
+
     private ActionStatePair createSuccessor(LightsOutState s, LightsOutAction action) {
-        int x = action.x;
-        int y = action.y;
-        int dimx = s.lights.size();
-        int dimy = s.lights.get(0).size();
-        
-        ArrayList<ArrayList<Boolean>> newLights = new ArrayList<ArrayList<Boolean>>();
-        for (int i = 0; i < dimx; i++) {
-            newLights.add(new ArrayList<Boolean>());
-            for (int j = 0; j < dimy; j++) {
-                 /*
-                   If if (i,j) is the cell (x,y) or a neighboring cell, set
-                   its value to the negation of the corresponding cell of the
-                   predecessor, otherwise copy the value.
-                 */
-                 if (Math.abs(i - action.x) + Math.abs(j - action.y) <= 1) {
-                     newLights.get(i).add(!s.lights.get(i).get(j));
-                 } else {
-                     newLights.get(i).add(s.lights.get(i).get(j));
-                 }
-            }
-        }
-
-        LightsOutState succ = new LightsOutState(newLights);
+        /*
+          Toggling (x,y) and its neighbors is an XOR of the current grid
+          with the precomputed toggle mask of the action.
+        */
+        LightsOutState succ;
+        if (s instanceof SmallLightsOutState) {
+            succ = new SmallLightsOutState(dimx, dimy, ((SmallLightsOutState) s).lights ^ action.mask);
+        } else {
+            LargeLightsOutState large = (LargeLightsOutState) s;
+            long[] newLights = large.lights.clone();
+            for (int i = 0; i < action.maskWords.length; i++) {
+                newLights[action.maskWords[i]] ^= action.maskBits[i];
+            }
+            succ = new LargeLightsOutState(dimx, dimy, newLights, large.hash ^ action.zobrist);
+        }
         return new ActionStatePair(action,succ);
     }
 
@@ -197,16 +453,185 @@ public class LightsOutStateSpace implements StateSpace {
         return a.cost();
     }
 
+    public int packedWords() {
+        return numWords(dimx, dimy);
+    }
+
+    public void pack(State s_, long[] key, int offset) {
+        if (s_ instanceof SmallLightsOutState) {
+            if (dimx*dimy > 0) {
+                key[offset] = ((SmallLightsOutState) s_).lights;
+            }
+        } else {
+            long[] lights = ((LargeLightsOutState) s_).lights;
+            System.arraycopy(lights, 0, key, offset, lights.length);
+        }
+    }
+
+    public State unpack(long[] key, int offset) {
+        long[] lights = Arrays.copyOfRange(key, offset, offset + numWords(dimx, dimy));
+        if (dimx*dimy <= 64) {
+            return createState(dimx, dimy, lights);
+        }
+        long hash = 0;
+        for (int word = 0; word < lights.length; word++) {
+            for (long bits = lights[word]; bits != 0; bits &= bits - 1) {
+                hash ^= zobristKeys[64*word + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return new LargeLightsOutState(dimx, dimy, lights, hash);
+    }
+
+    /*
+      Square grids have the 8 symmetries of the square (rotations and
+      reflections). They map the goal (all lights off) to itself, and they
+      preserve the action costs, since the cost of a toggle only depends on
+      whether the cell is a corner, edge or interior cell. Grids with more
+      than 64 columns are not reduced, since their rows do not fit into a
+      long.
+    */
+    public int numSymmetries() {
+        return (dimx == dimy && dimx > 1 && dimx <= 64) ? 8 : 1;
+    }
+
+    /*
+      The canonical image is the one whose rows, compared from the first
+      row on, are smallest. With the rows r[x] and the columns c[y] of the
+      grid as n-bit words, the 8 images are obtained by reading either
+      r or c (transposition), in forward or backward order (reflection of
+      the rows), with every word bit-reversed or not (reflection of the
+      columns). The images are compared row by row and usually all but
+      one are ruled out after the first few rows.
+    */
+    public void packCanonical(State s_, long[] key, int offset) {
+        if (numSymmetries() == 1) {
+            pack(s_, key, offset);
+            return;
+        }
+        int n = dimx;
+        // The transposition works on a block of size*size bits, where size is a power of 2.
+        int size = Integer.highestOneBit(2*n - 1);
+        long rowMask = (n == 64) ? -1L : (1L << n) - 1;
+        long[] lines = symmetryScratch.get();
+        Arrays.fill(lines, n, size, 0);
+        Arrays.fill(lines, 64 + n, 64 + size, 0);
+        if (s_ instanceof SmallLightsOutState) {
+            long lights = ((SmallLightsOutState) s_).lights;
+            for (int x = 0; x < n; x++) {
+                lines[x] = (lights >>> (x*n)) & rowMask;
+            }
+        } else {
+            long[] lights = ((LargeLightsOutState) s_).lights;
+            for (int x = 0; x < n; x++) {
+                int word = (x*n) >>> 6;
+                int bit = (x*n) & 63;
+                long row = lights[word] >>> bit;
+                if (bit + n > 64) {
+                    row |= lights[word + 1] << (64 - bit);
+                }
+                lines[x] = row & rowMask;
+            }
+        }
+        System.arraycopy(lines, 0, lines, 64, n);
+        transpose(lines, 64, size);
+
+        int candidates = 0xFF;
+        for (int x = 0; x < n && Integer.bitCount(candidates) > 1; x++) {
+            long min = -1L;
+            for (int t = 0; t < 8; t++) {
+                if ((candidates & (1 << t)) != 0 && Long.compareUnsigned(imageRow(lines, n, t, x), min) < 0) {
+                    min = imageRow(lines, n, t, x);
+                }
+            }
+            for (int t = 0; t < 8; t++) {
+                if ((candidates & (1 << t)) != 0 && imageRow(lines, n, t, x) != min) {
+                    candidates &= ~(1 << t);
+                }
+            }
+        }
+        int transform = Integer.numberOfTrailingZeros(candidates);
+
+        int words = numWords(dimx, dimy);
+        Arrays.fill(key, offset, offset + words, 0);
+        for (int x = 0; x < n; x++) {
+            long row = imageRow(lines, n, transform, x);
+            int word = (x*n) >>> 6;
+            int bit = (x*n) & 63;
+            key[offset + word] |= row << bit;
+            if (bit + n > 64) {
+                key[offset + word + 1] |= row >>> (64 - bit);
+            }
+        }
+    }
+
+    /*
+      Row x of image number t (0 to 7) of an n x n grid, whose rows are
+      stored in lines[0..n) and whose columns are stored in lines[64..64+n).
+    */
+    private static long imageRow(long[] lines, int n, int t, int x) {
+        long row = lines[((t & 4) != 0 ? 64 : 0) + ((t & 1) != 0 ? n-1-x : x)];
+        return (t & 2) != 0 ? Long.reverse(row) >>> (64 - n) : row;
+    }
+
+    /*
+      Transposes the size x size bit matrix in lines[offset..offset+size),
+      where bit j of lines[offset+i] is the entry (i, j) and size is a power
+      of 2 up to 64, by swapping ever smaller blocks (Hacker's Delight,
+      section 7-3).
+    */
+    private static void transpose(long[] lines, int offset, int size) {
+        if (size == 1) {
+            return;
+        }
+        // Blocks of j ones alternating with j zeros, starting with j = size/2.
+        long mask = Long.divideUnsigned(-1L, (1L << (size/2)) + 1);
+        for (int j = size/2; j != 0; j >>= 1, mask ^= (mask << j)) {
+            for (int k = 0; k < size; k = ((k | j) + 1) & ~j) {
+                long t = ((lines[offset + k] >>> j) ^ lines[offset + (k | j)]) & mask;
+                lines[offset + k] ^= t << j;
+                lines[offset + (k | j)] ^= t;
+            }
+        }
+    }
+
+    public int numBits() {
+        return dimx*dimy;
+    }
+
+    public int numActions() {
+        return actions.length;
+    }
+
+    public Action getAction(int index) {
+        return actions[index];
+    }
+
+    public void toggleMask(int index, long[] mask) {
+        LightsOutAction action = actions[index];
+        Arrays.fill(mask, 0);
+        for (int i = 0; i < action.maskWords.length; i++) {
+            mask[action.maskWords[i]] = action.maskBits[i];
+        }
+    }
+
     @Override
     public int h(State s_) {
-        LightsOutState s = (LightsOutState) s_;
-        int heuristic = 0;
-        for (int x = 0; x < dimx; x++) {
-            for (int y = 0; y < dimy; y++) {
-                if (s.lights.get(x).get(y)) {
-                    heuristic++;
-                }
+        if (patternDatabase != null) {
+            if (s_ instanceof SmallLightsOutState) {
+                return patternDatabase.h(((SmallLightsOutState) s_).lights);
             }
+            return patternDatabase.h(((LargeLightsOutState) s_).lights);
+        }
+
+        // Without pattern database, the heuristic is the number of lights that are on.
+        if (s_ instanceof SmallLightsOutState) {
+            return Long.bitCount(((SmallLightsOutState) s_).lights);
+        }
+
+        LargeLightsOutState s = (LargeLightsOutState) s_;
+        int heuristic = 0;
+        for (long word : s.lights) {
+            heuristic += Long.bitCount(word);
         }
         return heuristic;
     }
@@ -217,81 +642,203 @@ public class LightsOutStateSpace implements StateSpace {
       The lights-out state space is a *parameterized* one (i.e., the
       initial state depends on arguments specified by the user of the
       code).
+
+      Optionally, the heuristic can use a pattern database (--pdb=<file>,
+      with --pdb-region-size=<cells per pattern>, default 16). The file
+      is built on first use and reused afterwards.
     */
     public static StateSpace buildFromCmdline(ArrayList<String> args) {
-        if (args.size() != 1) {
+        ArrayList<String> files = new ArrayList<String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                files.add(arg);
+            }
+        }
+        if (files.size() != 1) {
             Errors.usageError("Need one input file argument.");
         }
 
-        String filename = args.get(0);
+        String filename = files.get(0);
         System.out.println("Reading input from file " + filename + "...");
-        Scanner scanner;
+        LightsOutStateSpace stateSpace = null;
         try {
-            scanner = new Scanner(new File(filename));
-        } catch (FileNotFoundException e) {
-            Errors.fileError("Input file not found: " + filename);
-            scanner = new Scanner(""); // unreachable; silences compiler
+            stateSpace = readFromFile(filename);
+        } catch (InvalidInputException e) {
+            Errors.fileError(e.getMessage());
         }
+        System.out.println("Instantiating lights-out instance...");
 
-        if(!scanner.hasNextLine()) {
-            Errors.fileError("Input file is empty.");
+        String[] options = args.toArray(new String[0]);
+        String patternDatabaseFile = Options.get(options, "pdb", null);
+        if (patternDatabaseFile != null) {
+            int regionSize = Integer.parseInt(Options.get(options, "pdb-region-size", "16"));
+            stateSpace.patternDatabase = PatternDatabase.loadOrBuild(stateSpace, patternDatabaseFile, regionSize);
+        }
+        return stateSpace;
+    }
+
+    /*
+      Builds a solvable instance without an input file by pressing the
+      given number of random distinct lights of the empty grid. Used by
+      the benchmarks, which need reproducible instances of every size.
+    */
+    public static StateSpace buildRandom(int dimx, int dimy, int presses, long seed) {
+        LightsOutStateSpace stateSpace = new LightsOutStateSpace(dimx, dimy,
+                createState(dimx, dimy, new long[numWords(dimx, dimy)]));
+        Random rand = new Random(seed);
+        long[] lights = new long[numWords(dimx, dimy)];
+        boolean[] pressed = new boolean[dimx*dimy];
+        for (int i = 0; i < Math.min(presses, dimx*dimy); i++) {
+            int index;
+            do {
+                index = rand.nextInt(dimx*dimy);
+            } while (pressed[index]);
+            pressed[index] = true;
+            stateSpace.toggleCells(index / dimy, index % dimy, lights);
         }
-        Scanner lineScanner = new Scanner(scanner.nextLine());
+        stateSpace.initialState = createState(dimx, dimy, lights);
+        return stateSpace;
+    }
 
-        if(!lineScanner.hasNextInt()) {
-            Errors.fileError("Number of rows not specified.");
+    /*
+      Reads an instance from a file. Unlike buildFromCmdline, this neither
+      prints anything nor exits on errors, so that it can be used to solve
+      many instances in one process (see BatchSolver).
+    */
+    public static LightsOutStateSpace readFromFile(String filename) throws InvalidInputException {
+        try (FileChannel channel = openInputFile(filename)) {
+            ChannelTokenizer in = new ChannelTokenizer(channel);
+            if (!in.hasNextLine()) {
+                throw new InvalidInputException("Input file is empty.");
+            }
+            LightsOutStateSpace stateSpace = read(in);
+            if (in.hasNext()) {
+                throw new InvalidInputException("Grid description has more than the specified "
+                + stateSpace.dimx + " rows.");
+            }
+            return stateSpace;
+        } catch (IOException e) {
+            throw new InvalidInputException("cannot read " + filename + ": " + e.getMessage());
         }
-        int dimx = lineScanner.nextInt();
+    }
+
+    /*
+      Reads all instances of a file in one pass. The file either contains
+      a single instance, or it is a batch file that starts with the line
+      "lights-out-batch <count>", followed by count instances in the usual
+      format (blank lines between them are allowed).
+    */
+    public static ArrayList<LightsOutStateSpace> readAllFromFile(String filename) throws InvalidInputException {
+        try (FileChannel channel = openInputFile(filename)) {
+            ChannelTokenizer in = new ChannelTokenizer(channel);
+            if (!in.hasNextLine()) {
+                throw new InvalidInputException("Input file is empty.");
+            }
+            ArrayList<LightsOutStateSpace> stateSpaces = new ArrayList<LightsOutStateSpace>();
+            if (!in.hasWordInLine()) {
+                stateSpaces.add(read(in));
+                if (in.hasNext()) {
+                    throw new InvalidInputException("Grid description has more than the specified "
+                    + stateSpaces.get(0).dimx + " rows.");
+                }
+                return stateSpaces;
+            }
+
+            String format = in.nextTokenInLine();
+            if (!format.equals("lights-out-batch")) {
+                throw new InvalidInputException("Unknown file format: " + format);
+            }
+            if (!in.hasTokenInLine() || !in.nextIntInLine() || in.lastInt() < 0) {
+                throw new InvalidInputException("Number of instances not specified.");
+            }
+            int count = in.lastInt();
+            if (in.hasTokenInLine()) {
+                throw new InvalidInputException("First line contains more than the number of instances.");
+            }
+            in.nextLine();
+            for (int i = 1; i <= count; i++) {
+                if (!in.hasNext()) {
+                    throw new InvalidInputException("File contains less than the specified "
+                    + count + " instances.");
+                }
+                try {
+                    stateSpaces.add(read(in));
+                } catch (InvalidInputException e) {
+                    throw new InvalidInputException("instance " + i + ": " + e.getMessage());
+                }
+            }
+            if (in.hasNext()) {
+                throw new InvalidInputException("File contains more than the specified "
+                + count + " instances.");
+            }
+            return stateSpaces;
+        } catch (IOException e) {
+            throw new InvalidInputException("cannot read " + filename + ": " + e.getMessage());
+        }
+    }
+
+    private static FileChannel openInputFile(String filename) throws InvalidInputException {
+        try {
+            return FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new InvalidInputException("Input file not found: " + filename);
+        } catch (IOException | InvalidPathException e) {
+            throw new InvalidInputException("cannot open " + filename + ": " + e.getMessage());
+        }
+    }
+
+    /*
+      Reads one instance, starting at the current line: a line with the
+      number of rows and columns, followed by one line per row with a 0 or
+      1 for every cell. The bits are written directly into the packed
+      representation of the state.
+    */
+    private static LightsOutStateSpace read(ChannelTokenizer in) throws IOException, InvalidInputException {
+        if(!in.hasTokenInLine() || !in.nextIntInLine()) {
+            throw new InvalidInputException("Number of rows not specified.");
+        }
+        int dimx = in.lastInt();
         if (dimx < 0) {
-            Errors.fileError("Invalid x dimension: " + dimx);
+            throw new InvalidInputException("Invalid x dimension: " + dimx);
         }
-        
-        if(!lineScanner.hasNextInt()) {
-            Errors.fileError("Number of columns not specified.");
+
+        if(!in.hasTokenInLine() || !in.nextIntInLine()) {
+            throw new InvalidInputException("Number of columns not specified.");
         }
-        int dimy = lineScanner.nextInt();
+        int dimy = in.lastInt();
         if (dimy < 0) {
-            Errors.fileError("Invalid y dimension: " + dimy);
+            throw new InvalidInputException("Invalid y dimension: " + dimy);
         }
 
-        if(lineScanner.hasNext()) {
-            Errors.fileError("First line contains more than number of rows and column.");
+        if(in.hasTokenInLine()) {
+            throw new InvalidInputException("First line contains more than number of rows and column.");
         }
-        lineScanner.close();
+        in.nextLine();
 
-        ArrayList<ArrayList<Boolean>> initialLights = new ArrayList<ArrayList<Boolean>>();
+        long[] initialLights = new long[numWords(dimx, dimy)];
         for (int x = 0; x < dimx; x++) {
-            if(!scanner.hasNextLine()) {
-                Errors.fileError("Grid description has less than the specified "
+            if(!in.hasNextLine()) {
+                throw new InvalidInputException("Grid description has less than the specified "
             + dimx + " rows.");
             }
-            lineScanner = new Scanner(scanner.nextLine());
-            initialLights.add(new ArrayList<Boolean>());
             for (int y = 0; y < dimy; y++) {
-                if(!lineScanner.hasNextInt()) {
-                    Errors.fileError("Grid description wrong: row " + (x+1)
+                if(!in.hasTokenInLine() || !in.nextIntInLine()) {
+                    throw new InvalidInputException("Grid description wrong: row " + (x+1)
                     + " has less than the specified " + dimy + " columns.");
                 }
-                int val = lineScanner.nextInt();
-                if (val == 1) {
-                    initialLights.get(x).add(true);
-                } else {
-                    initialLights.get(x).add(false);
+                if (in.lastInt() == 1) {
+                    int cell = x*dimy+y;
+                    initialLights[cell >>> 6] |= 1L << cell;
                 }
             }
-            if (lineScanner.hasNext()) {
-                Errors.fileError("Grid description wrong: row " + (x+1)
+            if (in.hasTokenInLine()) {
+                throw new InvalidInputException("Grid description wrong: row " + (x+1)
                 + " has more than the specified " + dimy + " columns.");
             }
-            lineScanner.close();
-        }
-        if (scanner.hasNext()) {
-            Errors.fileError("Grid description has more than the specified "
-            + dimx + " rows.");
+            in.nextLine();
         }
-        scanner.close();
 
-        LightsOutState initialState = new LightsOutState(initialLights);
+        LightsOutState initialState = createState(dimx, dimy, initialLights);
         return new LightsOutStateSpace(dimx, dimy, initialState);
     }
 }
@@ -0,0 +1,38 @@
+import java.util.ArrayList;
+
+/*
+  Solves state spaces that are linear systems over GF(2) (XorStateSpace,
+  e.g., lights-out) by Gaussian elimination instead of search, and picks
+  the cheapest solution among all solutions.
+
+  Usage: LinearAlgebraSolver <state space> <input file>
+*/
+public class LinearAlgebraSolver extends SearchAlgorithmBase {
+    public LinearAlgebraSolver(String[] args) {
+        super(args);
+        if (!(stateSpace instanceof XorStateSpace)) {
+            Errors.usageError("state space is not a linear system over GF(2)");
+        }
+        // The solver needs the elimination anyway, and the check shares it.
+        forceGf2Check = true;
+    }
+
+    @Override
+    protected ArrayList<Action> run() {
+        Gf2Elimination elimination = initialElimination();
+        if (!elimination.isSolvable()) {
+            return null;
+        }
+        long[] solution = elimination.cheapestSolution();
+        System.out.println("dimension of the solution space: " + elimination.nullity());
+        if (!elimination.isCheapest()) {
+            System.out.println("too many solutions to enumerate: solution is not guaranteed to be cheapest");
+        }
+        return elimination.toActions(solution);
+    }
+
+    public static void main(String[] args) {
+        LinearAlgebraSolver solver = new LinearAlgebraSolver(args);
+        solver.runSearchAlgorithm();
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+
+/*
+  The search nodes of a search, stored as a struct of arrays: node i is
+  described by parents[i], actions[i], gValues[i] and hValues[i] and by its
+  state slot, and is referred to by its index instead of an object. The
+  root has parent NO_NODE.
+
+  Actions are stored as indices into a table of the distinct actions
+  seen so far. For a PackedStateSpace, the state slot holds the packed
+  words of the state, and state(i) unpacks them; otherwise it holds a
+  reference to the state object. The packed words are kept in pages of
+  at most MAX_PAGE_WORDS words, so growing never copies them.
+
+  A node that is polled from the open list and pruned as a duplicate has
+  no children, so it can be released and its index is reused by the next
+  added node. The free indices are linked through the parents array.
+*/
+public class NodeStore {
+    public static final int NO_NODE = -1;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_PAGE_WORDS = 1 << 20;
+    private static final int MAX_PAGE_SHIFT = 12;
+
+    private final PackedStateSpace packedStateSpace;
+    private final int stride;
+    /* Every page holds the packed states of 2^pageShift nodes. */
+    private final int pageShift;
+    private final int pageMask;
+
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] actions = new int[INITIAL_CAPACITY];
+    private int[] gValues = new int[INITIAL_CAPACITY];
+    private int[] hValues = new int[INITIAL_CAPACITY];
+    private long[][] packedStates = new long[0][];
+    private State[] states;
+
+    private final ArrayList<Action> actionTable = new ArrayList<>();
+    private final IdentityHashMap<Action, Integer> actionIndices = new IdentityHashMap<>();
+
+    private int capacity = INITIAL_CAPACITY;
+    private int end;
+    private int freeList = NO_NODE;
+    private int size;
+
+    public NodeStore(StateSpace stateSpace) {
+        if (stateSpace instanceof PackedStateSpace) {
+            packedStateSpace = (PackedStateSpace) stateSpace;
+            stride = Math.max(1, packedStateSpace.packedWords());
+            int nodesPerPage = Math.max(1, MAX_PAGE_WORDS / stride);
+            pageShift = Math.min(MAX_PAGE_SHIFT, 31 - Integer.numberOfLeadingZeros(nodesPerPage));
+        } else {
+            packedStateSpace = null;
+            stride = 0;
+            pageShift = 0;
+            states = new State[INITIAL_CAPACITY];
+        }
+        pageMask = (1 << pageShift) - 1;
+    }
+
+    /* Adds a node and returns its index; action is null for the root. */
+    public int add(int parent, Action action, State state, int g, int h) {
+        int node;
+        if (freeList != NO_NODE) {
+            node = freeList;
+            freeList = parents[node];
+        } else {
+            if (end == capacity) {
+                grow();
+            }
+            node = end++;
+        }
+        parents[node] = parent;
+        actions[node] = actionIndex(action);
+        gValues[node] = g;
+        hValues[node] = h;
+        if (packedStateSpace != null) {
+            packedStateSpace.pack(state, page(node), (node & pageMask) * stride);
+        } else {
+            states[node] = state;
+        }
+        size++;
+        return node;
+    }
+
+    /* Makes the index of a node without children available again. */
+    public void release(int node) {
+        if (states != null) {
+            states[node] = null;
+        }
+        parents[node] = freeList;
+        freeList = node;
+        size--;
+    }
+
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    public Action action(int node) {
+        int index = actions[node];
+        return index < 0 ? null : actionTable.get(index);
+    }
+
+    public int g(int node) {
+        return gValues[node];
+    }
+
+    public int h(int node) {
+        return hValues[node];
+    }
+
+    public State state(int node) {
+        if (packedStateSpace != null) {
+            return packedStateSpace.unpack(packedStates[node >>> pageShift], (node & pageMask) * stride);
+        }
+        return states[node];
+    }
+
+    /* Number of nodes that are currently stored. */
+    public int size() {
+        return size;
+    }
+
+    /* The actions on the path from the root to the given node. */
+    public ArrayList<Action> extractPath(int node) {
+        ArrayList<Action> path = new ArrayList<>();
+        while (parents[node] != NO_NODE) {
+            path.add(action(node));
+            node = parents[node];
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private int actionIndex(Action action) {
+        if (action == null) {
+            return -1;
+        }
+        Integer index = actionIndices.get(action);
+        if (index == null) {
+            index = actionTable.size();
+            actionTable.add(action);
+            actionIndices.put(action, index);
+        }
+        return index;
+    }
+
+    private long[] page(int node) {
+        int page = node >>> pageShift;
+        if (page == packedStates.length) {
+            packedStates = Arrays.copyOf(packedStates, page + 1);
+            packedStates[page] = new long[(pageMask + 1) * stride];
+        }
+        return packedStates[page];
+    }
+
+    private void grow() {
+        if (capacity == Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("node store exceeds " + capacity + " nodes");
+        }
+        capacity = (int) Math.min(2L * capacity, Integer.MAX_VALUE - 8);
+        parents = Arrays.copyOf(parents, capacity);
+        actions = Arrays.copyOf(actions, capacity);
+        gValues = Arrays.copyOf(gValues, capacity);
+        hValues = Arrays.copyOf(hValues, capacity);
+        if (states != null) {
+            states = Arrays.copyOf(states, capacity);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+/*
+  The open list of a search algorithm: a priority queue of items with
+  integer priorities, where poll() removes an item with minimal priority.
+*/
+public interface OpenList<T> {
+    public void add(T item, int priority);
+    public T poll();
+    /* The minimal priority of all items; only defined if the list is not empty. */
+    public int minPriority();
+    public boolean isEmpty();
+    public int size();
+}
@@ -0,0 +1,57 @@
+import java.util.Locale;
+
+/*
+  Access to optional command line arguments of the form "--name=value",
+  which may follow the positional arguments of a search algorithm.
+*/
+public class Options {
+    public static String get(String args[], String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    /*
+      Returns the value of "--name=<size>" as a number of bytes; the size
+      may have a suffix k, m or g (powers of 1024).
+    */
+    public static long getSize(String args[], String name, String defaultValue) {
+        String size = get(args, name, defaultValue);
+        String digits = size.toLowerCase(Locale.ROOT);
+        int shift = 0;
+        if (digits.endsWith("k")) {
+            shift = 10;
+        } else if (digits.endsWith("m")) {
+            shift = 20;
+        } else if (digits.endsWith("g")) {
+            shift = 30;
+        }
+        if (shift > 0) {
+            digits = digits.substring(0, digits.length() - 1);
+        }
+        long value = 0;
+        try {
+            value = Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            Errors.usageError("invalid size: " + size);
+        }
+        if (value < 0 || value > (Long.MAX_VALUE >> shift)) {
+            Errors.usageError("invalid size: " + size);
+        }
+        return value << shift;
+    }
+
+    /* Returns true iff the flag "--name" is given. */
+    public static boolean has(String args[], String name) {
+        for (String arg : args) {
+            if (arg.equals("--" + name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+  Closed list for states of a PackedStateSpace: a PackedStateTable
+  without values, so there is no entry object per state and the
+  duplicate check only compares primitive words.
+*/
+public class PackedClosedList implements ClosedList {
+    private final PackedStateTable table;
+
+    public PackedClosedList(PackedStateSpace stateSpace) {
+        this(stateSpace, false);
+    }
+
+    /*
+      With canonical set, symmetric states (see SymmetricStateSpace) are
+      treated as the same state.
+    */
+    public PackedClosedList(PackedStateSpace stateSpace, boolean canonical) {
+        table = new PackedStateTable("closed list", stateSpace, canonical, false);
+    }
+
+    public boolean contains(State s) {
+        return table.isUsed(table.find(s));
+    }
+
+    public boolean add(State s) {
+        int slot = table.find(s);
+        if (table.isUsed(slot)) {
+            return false;
+        }
+        table.insert(slot, 0);
+        return true;
+    }
+
+    public long size() {
+        return table.size();
+    }
+}
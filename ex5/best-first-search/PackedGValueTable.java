@@ -0,0 +1,38 @@
+/*
+  g value table for states of a PackedStateSpace: a PackedStateTable
+  (the same table as PackedClosedList) whose value per slot is the g
+  value of the state.
+*/
+public class PackedGValueTable implements GValueTable {
+    private final PackedStateTable table;
+
+    public PackedGValueTable(PackedStateSpace stateSpace) {
+        this(stateSpace, false);
+    }
+
+    /*
+      With canonical set, symmetric states (see SymmetricStateSpace) are
+      treated as the same state.
+    */
+    public PackedGValueTable(PackedStateSpace stateSpace, boolean canonical) {
+        table = new PackedStateTable("g value table", stateSpace, canonical, true);
+    }
+
+    public int get(State s) {
+        int slot = table.find(s);
+        return table.isUsed(slot) ? table.value(slot) : Integer.MAX_VALUE;
+    }
+
+    public void put(State s, int g) {
+        int slot = table.find(s);
+        if (table.isUsed(slot)) {
+            table.setValue(slot, g);
+        } else {
+            table.insert(slot, g);
+        }
+    }
+
+    public long size() {
+        return table.size();
+    }
+}
@@ -0,0 +1,14 @@
+/*
+  Optional capability of a state space whose states can be packed into a
+  fixed number of 64-bit words. The search code uses the packed form as a
+  primitive key (e.g., in PackedClosedList) instead of calling hashCode()
+  and equals() on the state objects.
+*/
+public interface PackedStateSpace extends StateSpace {
+    /* Number of words of the packed representation of every state. */
+    public int packedWords();
+    /* Writes the packed representation of s to key[offset..offset+packedWords()). */
+    public void pack(State s, long[] key, int offset);
+    /* Inverse of pack: creates the state packed at key[offset..offset+packedWords()). */
+    public State unpack(long[] key, int offset);
+}
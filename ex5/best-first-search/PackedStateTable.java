@@ -0,0 +1,185 @@
+/*
+  Hash table keyed by the packed states of a PackedStateSpace, with an
+  optional int value per entry; PackedClosedList and PackedGValueTable
+  are thin wrappers around it.
+
+  The packed keys are stored in one flat long array (open addressing with
+  linear probing), so there is no entry object per state and a lookup
+  only compares primitive words. Which slots are in use is recorded in a
+  separate bit set, since every key (including all zeros) is a valid
+  state.
+
+  For keys of more than one word, the hash value of every slot is stored
+  as well: it is compared before the words of the key, and growing the
+  table does not have to hash the keys again. The hash values are taken
+  from the state space if it is a HashedStateSpace, except for canonical
+  keys, which are not hashed like the states themselves.
+
+  A lookup is split into find(s), which returns a slot, and the accessors
+  of that slot, so that a lookup followed by an insertion packs and
+  hashes the state only once.
+*/
+public class PackedStateTable {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /* Name of the table in error messages. */
+    private final String name;
+    private final PackedStateSpace stateSpace;
+    /* Non-null iff the keys are the canonical forms of the states. */
+    private final SymmetricStateSpace symmetricStateSpace;
+    /* Non-null iff the hash values of the state space are used. */
+    private final HashedStateSpace hashedStateSpace;
+    private final int stride;
+    private final boolean hasValues;
+    /* The key and hash value of the state of the last call of find. */
+    private final long[] key;
+    private long hash;
+
+    private long[] keys;
+    /* The hash value of every slot, only for keys of more than one word. */
+    private long[] hashes;
+    /* The value of every slot, only if hasValues. */
+    private int[] values;
+    private long[] used;
+    private int mask;
+    private int size;
+
+    /*
+      With canonical set, symmetric states (see SymmetricStateSpace) are
+      treated as the same state.
+    */
+    public PackedStateTable(String name, PackedStateSpace stateSpace, boolean canonical, boolean hasValues) {
+        this.name = name;
+        this.stateSpace = stateSpace;
+        this.symmetricStateSpace = canonical ? (SymmetricStateSpace) stateSpace : null;
+        this.stride = Math.max(1, stateSpace.packedWords());
+        if (stride > 1 && !canonical && stateSpace instanceof HashedStateSpace) {
+            this.hashedStateSpace = (HashedStateSpace) stateSpace;
+        } else {
+            this.hashedStateSpace = null;
+        }
+        this.hasValues = hasValues;
+        this.key = new long[stride];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /*
+      Returns the slot holding s, or the free slot where it would have to
+      be inserted (see isUsed).
+    */
+    public int find(State s) {
+        if (symmetricStateSpace != null) {
+            symmetricStateSpace.packCanonical(s, key, 0);
+        } else {
+            stateSpace.pack(s, key, 0);
+        }
+        hash = hashedStateSpace != null ? hashedStateSpace.hash64(s) : hash(key, 0);
+        return find(key, 0, hash);
+    }
+
+    public boolean isUsed(int slot) {
+        return (used[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /* The value of a used slot; only if the table has values. */
+    public int value(int slot) {
+        return values[slot];
+    }
+
+    public void setValue(int slot, int value) {
+        values[slot] = value;
+    }
+
+    /*
+      Inserts the state of the last call of find, which must have returned
+      the given free slot, with the given value (ignored without values).
+    */
+    public void insert(int slot, int value) {
+        insert(slot, key, 0, hash, value);
+        if (2 * size > mask + 1) {
+            grow();
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private int find(long[] k, int offset, long hash) {
+        int slot = (int) hash & mask;
+        while (isUsed(slot) && !matches(slot, k, offset, hash)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int slot, long[] k, int offset, long hash) {
+        if (hashes != null && hashes[slot] != hash) {
+            return false;
+        }
+        int base = slot * stride;
+        for (int i = 0; i < stride; i++) {
+            if (keys[base + i] != k[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int slot, long[] k, int offset, long hash, int value) {
+        System.arraycopy(k, offset, keys, slot * stride, stride);
+        if (hashes != null) {
+            hashes[slot] = hash;
+        }
+        if (values != null) {
+            values[slot] = value;
+        }
+        used[slot >>> 6] |= 1L << slot;
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * stride];
+        if (stride > 1) {
+            hashes = new long[capacity];
+        }
+        if (hasValues) {
+            values = new int[capacity];
+        }
+        used = new long[(capacity + 63) / 64];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= MAX_CAPACITY || 2L * capacity * stride > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(name + " cannot grow beyond " + capacity + " slots");
+        }
+        long[] oldKeys = keys;
+        long[] oldHashes = hashes;
+        int[] oldValues = values;
+        long[] oldUsed = used;
+        allocate(2 * capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            if ((oldUsed[slot >>> 6] & (1L << slot)) != 0) {
+                long hash = (oldHashes != null) ? oldHashes[slot] : hash(oldKeys, slot * stride);
+                int value = (oldValues != null) ? oldValues[slot] : 0;
+                insert(find(oldKeys, slot * stride, hash), oldKeys, slot * stride, hash, value);
+            }
+        }
+    }
+
+    private long hash(long[] k, int offset) {
+        long h = 0;
+        for (int i = 0; i < stride; i++) {
+            h = (h ^ k[offset + i]) * 0x9E3779B97F4A7C15L;
+        }
+        // Final mixing step of MurmurHash3.
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,301 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+  Hash-distributed A* (HDA*) on several threads.
+
+  Every state is owned by one worker, determined by the hash code of the
+  state. Each worker has its own open list and g value table and only
+  expands nodes of its own states. Generated nodes of other workers'
+  states are sent to their owner through a lock-free mailbox.
+
+  Since the workers do not expand nodes in global f order, a goal is only
+  a candidate solution (the incumbent). Nodes whose f value is not better
+  than the incumbent are pruned, and states reached more cheaply later
+  are expanded again. The search ends when all workers are out of work
+  and no messages are in transit; with an admissible heuristic the
+  incumbent is then optimal.
+
+  Termination is detected with a single counter of active workers plus
+  undelivered messages: a message is counted before it is sent, and an
+  idle worker that receives one counts itself as active again before the
+  message is uncounted. So the counter only reaches zero when there is no
+  work left anywhere.
+
+  Every PROGRESS_INTERVAL of its own expansions, a worker copies its
+  counters into volatile fields, and if no other worker is doing so at
+  the moment, sums up the counters of all workers and publishes them
+  (see SearchAlgorithmBase.publishProgress): the open list size is the
+  sum of the workers' open lists, the closed list size the sum of their
+  g value tables, and the f value the smallest f value that a worker
+  expanded last. This is also where the node and time limits are
+  checked.
+
+  Options:
+    --threads=<n>     number of workers (default: number of processors)
+    --open-list=<t>   open list of every worker (heap or bucket)
+    --time-limit=<s>  give up after s seconds of wall-clock time
+
+  Usage: ParallelAStar <state space> <input file> [options]
+*/
+public class ParallelAStar extends SearchAlgorithmBase {
+    private final int numWorkers;
+    private final String openListType;
+
+    private Worker[] workers;
+    private final AtomicLong activeWorkersAndMessages = new AtomicLong();
+    private volatile boolean done;
+    private volatile Throwable failure;
+
+    private final Object incumbentLock = new Object();
+    private volatile int incumbentCost = Integer.MAX_VALUE;
+    private Node incumbent;
+    /* Held by the worker that publishes the sums of all counters. */
+    private final ReentrantLock progressLock = new ReentrantLock();
+
+    public ParallelAStar(String[] args) {
+        super(args);
+        numWorkers = Integer.parseInt(Options.get(args, "threads",
+                "" + Runtime.getRuntime().availableProcessors()));
+        if (numWorkers < 1) {
+            Errors.usageError("need at least one thread");
+        }
+        openListType = Options.get(args, "open-list", "heap");
+    }
+
+    @Override
+    protected ArrayList<Action> run() {
+        workers = new Worker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new Worker(i);
+        }
+        State init = stateSpace.init();
+        Node root = new Node(null, null, init, 0, stateSpace.h(init));
+        if (root.h == Integer.MAX_VALUE) {
+            return null;
+        }
+        workers[owner(init)].receive(root);
+
+        activeWorkersAndMessages.set(numWorkers);
+        long wallStart = System.nanoTime();
+        Thread[] threads = new Thread[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done = true;
+            }
+        }
+        long wallEnd = System.nanoTime();
+        if (failure instanceof SearchLimitExceededException) {
+            throw (SearchLimitExceededException) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException("worker failed", failure);
+        }
+
+        expandedNodes = 0;
+        generatedNodes = 0;
+        for (Worker worker : workers) {
+            System.out.println("worker " + worker.id + ": " + worker.expanded + " expanded, "
+                               + worker.generated + " generated, " + worker.sent + " sent, "
+                               + worker.cpuTime / 1000000000.0 + " seconds CPU time");
+            expandedNodes += worker.expanded;
+            generatedNodes += worker.generated;
+        }
+        System.out.println("" + (wallEnd - wallStart) / 1000000000.0 + " seconds wall-clock time");
+
+        if (incumbent == null) {
+            return null;
+        }
+        ArrayList<Action> path = new ArrayList<>();
+        for (Node node = incumbent; node.parent != null; node = node.parent) {
+            path.add(node.action);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /* Publishes the sums of the counters of all workers; only with progressLock. */
+    private void publishTotals() {
+        long expanded = 0;
+        long generated = 0;
+        long openListSize = 0;
+        long closedListSize = 0;
+        long fBound = Long.MAX_VALUE;
+        for (Worker worker : workers) {
+            expanded += worker.publishedExpanded;
+            generated += worker.publishedGenerated;
+            openListSize += worker.publishedOpenListSize;
+            closedListSize += worker.publishedClosedListSize;
+            if (worker.publishedExpanded > 0) {
+                fBound = Math.min(fBound, worker.publishedFBound);
+            }
+        }
+        expandedNodes = expanded;
+        generatedNodes = generated;
+        publishProgress(openListSize, closedListSize, fBound == Long.MAX_VALUE ? 0 : fBound);
+    }
+
+    private int owner(State s) {
+        long h = s.hashCode() * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % numWorkers);
+    }
+
+    private static class Node {
+        final Node parent;
+        final Action action;
+        final State state;
+        final int g;
+        final int h;
+
+        Node(Node parent, Action action, State state, int g, int h) {
+            this.parent = parent;
+            this.action = action;
+            this.state = state;
+            this.g = g;
+            this.h = h;
+        }
+    }
+
+    private class Worker implements Runnable {
+        final int id;
+        final ConcurrentLinkedQueue<Node> mailbox = new ConcurrentLinkedQueue<>();
+        final OpenList<Node> openList = createOpenList(openListType);
+        final GValueTable bestG = createGValueTable();
+        long expanded;
+        long generated;
+        long sent;
+        long cpuTime;
+        // Copies of the counters for publishTotals, written every PROGRESS_INTERVAL expansions.
+        volatile long publishedExpanded;
+        volatile long publishedGenerated;
+        volatile long publishedOpenListSize;
+        volatile long publishedClosedListSize;
+        volatile long publishedFBound;
+
+        Worker(int id) {
+            this.id = id;
+        }
+
+        public void run() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            long cpuStart = bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : 0;
+            try {
+                work();
+            } catch (Throwable t) {
+                failure = t;
+                done = true;
+            }
+            cpuTime = (bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : 0) - cpuStart;
+        }
+
+        private void work() {
+            boolean active = true;
+            while (!done) {
+                Node message = mailbox.poll();
+                if (message != null) {
+                    if (!active) {
+                        activeWorkersAndMessages.incrementAndGet();
+                        active = true;
+                    }
+                    receive(message);
+                    activeWorkersAndMessages.decrementAndGet();
+                } else if (!openList.isEmpty()) {
+                    expand(openList.poll());
+                } else if (active) {
+                    active = false;
+                    if (activeWorkersAndMessages.decrementAndGet() == 0) {
+                        done = true;
+                    }
+                } else {
+                    LockSupport.parkNanos(10000);
+                }
+            }
+        }
+
+        /* Adds a node of one of our states to the open list, unless it is a duplicate. */
+        void receive(Node node) {
+            if (node.g >= bestG.get(node.state)) {
+                return;
+            }
+            bestG.put(node.state, node.g);
+            openList.add(node, node.g + node.h);
+        }
+
+        private void expand(Node node) {
+            if (node.g > bestG.get(node.state) || node.g + node.h >= incumbentCost) {
+                return;
+            }
+            if (stateSpace.isGoal(node.state)) {
+                synchronized (incumbentLock) {
+                    if (node.g < incumbentCost) {
+                        incumbent = node;
+                        incumbentCost = node.g;
+                    }
+                }
+                return;
+            }
+            expanded++;
+            for (ActionStatePair actionStatePair : stateSpace.succ(node.state)) {
+                int g = node.g + stateSpace.cost(actionStatePair.action);
+                int h = stateSpace.h(actionStatePair.state);
+                if (h == Integer.MAX_VALUE || (long) g + h >= incumbentCost) {
+                    continue;
+                }
+                generated++;
+                Node succ = new Node(node, actionStatePair.action, actionStatePair.state, g, h);
+                int succOwner = owner(succ.state);
+                if (succOwner == id) {
+                    receive(succ);
+                } else {
+                    sent++;
+                    activeWorkersAndMessages.incrementAndGet();
+                    workers[succOwner].mailbox.offer(succ);
+                }
+            }
+            if ((expanded & (PROGRESS_INTERVAL - 1)) == 0) {
+                publish(node.g + node.h);
+            }
+        }
+
+        private void publish(long fBound) {
+            publishedExpanded = expanded;
+            publishedGenerated = generated;
+            publishedOpenListSize = openList.size();
+            publishedClosedListSize = bestG.size();
+            publishedFBound = fBound;
+            if (progressLock.tryLock()) {
+                try {
+                    publishTotals();
+                } finally {
+                    progressLock.unlock();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ParallelAStar search = new ParallelAStar(args);
+        String timeLimit = Options.get(args, "time-limit", null);
+        if (timeLimit != null) {
+            search.setLimits(Long.MAX_VALUE, (long) (Double.parseDouble(timeLimit) * 1e9));
+        }
+        try {
+            search.runSearchAlgorithm();
+        } catch (SearchLimitExceededException e) {
+            System.out.println("no solution found within the " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,313 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/*
+  Additive pattern database heuristic for an XorStateSpace.
+
+  The bits of a state are split into disjoint regions of consecutive bits
+  (for lights-out: consecutive cells in row-major order). Projecting a
+  state onto a region gives an abstract state (a pattern of at most
+  regionSize bits), and projecting the toggle masks gives the abstract
+  actions. For every region we store the exact abstract cost from every
+  pattern to the all-zero pattern, computed by a Dijkstra search from the
+  goal (since actions are XORs, backward and forward costs coincide).
+
+  To make the sum over all regions admissible, the cost of each action is
+  split among the regions in proportion to the number of bits it toggles
+  in them (cost partitioning). The shares are scaled by a common factor
+  so they stay integers; h is the sum of the table entries divided by
+  that factor, rounded up.
+
+  The tables are stored in a binary file and memory-mapped when loaded,
+  so a database is built once and then shared by all later runs.
+*/
+public class PatternDatabase {
+    private static final int MAGIC = 0x4C4F5044;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * 4 + 8 + 4 + 4;
+    private static final int MAX_REGION_SIZE = 24;
+    private static final int MAX_SCALE = 5040;
+    /* Table entry for patterns from which the all-zero pattern cannot be reached. */
+    private static final char UNREACHABLE = 0xFFFF;
+
+    private final int numBits;
+    private final int regionSize;
+    private final int scale;
+    private final CharBuffer[] tables;
+
+    private PatternDatabase(int numBits, int regionSize, int scale, CharBuffer[] tables) {
+        this.numBits = numBits;
+        this.regionSize = regionSize;
+        this.scale = scale;
+        this.tables = tables;
+    }
+
+    /*
+      Maps the pattern database stored in the given file, building and
+      writing it first if the file does not exist or was built for a
+      different state space or region size.
+    */
+    public static PatternDatabase loadOrBuild(XorStateSpace stateSpace, String filename, int regionSize) {
+        if (regionSize < 1 || regionSize > MAX_REGION_SIZE) {
+            Errors.usageError("pattern database region size must be between 1 and " + MAX_REGION_SIZE);
+        }
+        Path path = Paths.get(filename);
+        long fingerprint = fingerprint(stateSpace);
+        try {
+            if (!Files.exists(path) || !hasHeader(path, stateSpace.numBits(), regionSize, fingerprint)) {
+                System.out.println("Building pattern database " + filename + "...");
+                write(path, stateSpace, regionSize, fingerprint);
+            }
+            System.out.println("Loading pattern database " + filename + "...");
+            return map(path);
+        } catch (IOException e) {
+            Errors.fileError("pattern database " + filename + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /* Heuristic value of a packed state with a single word. */
+    public int h(long bits) {
+        long sum = 0;
+        for (int r = 0; r < tables.length; r++) {
+            int start = r * regionSize;
+            int length = Math.min(regionSize, numBits - start);
+            char entry = tables[r].get((int) ((bits >>> start) & ((1L << length) - 1)));
+            if (entry == UNREACHABLE) {
+                return Integer.MAX_VALUE;
+            }
+            sum += entry;
+        }
+        return (int) ((sum + scale - 1) / scale);
+    }
+
+    /* Heuristic value of a packed state. */
+    public int h(long[] bits) {
+        long sum = 0;
+        for (int r = 0; r < tables.length; r++) {
+            int start = r * regionSize;
+            int length = Math.min(regionSize, numBits - start);
+            char entry = tables[r].get(extract(bits, start, length));
+            if (entry == UNREACHABLE) {
+                return Integer.MAX_VALUE;
+            }
+            sum += entry;
+        }
+        return (int) ((sum + scale - 1) / scale);
+    }
+
+    /* Returns bits start..start+length-1 (length <= 32) of a bit vector. */
+    private static int extract(long[] bits, int start, int length) {
+        int word = start >>> 6;
+        int offset = start & 63;
+        long value = bits[word] >>> offset;
+        if (offset + length > 64) {
+            value |= bits[word + 1] << (64 - offset);
+        }
+        return (int) (value & ((1L << length) - 1));
+    }
+
+    private static boolean hasHeader(Path path, int numBits, int regionSize, long fingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            if (header.hasRemaining()) {
+                return false;
+            }
+            header.flip();
+            return header.getInt() == MAGIC
+                && header.getInt() == VERSION
+                && header.getInt() == numBits
+                && header.getInt() == regionSize
+                && header.getLong() == fingerprint;
+        }
+    }
+
+    private static PatternDatabase map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("file is too large to be mapped");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a pattern database");
+            }
+            int numBits = buffer.getInt();
+            int regionSize = buffer.getInt();
+            buffer.getLong();
+            int scale = buffer.getInt();
+            int numRegions = buffer.getInt();
+            CharBuffer[] tables = new CharBuffer[numRegions];
+            int position = HEADER_BYTES;
+            for (int r = 0; r < numRegions; r++) {
+                int length = Math.min(regionSize, numBits - r * regionSize);
+                int bytes = 2 << length;
+                if (position + bytes > buffer.limit()) {
+                    throw new IOException("file is truncated");
+                }
+                buffer.limit(position + bytes).position(position);
+                tables[r] = buffer.slice().asCharBuffer();
+                buffer.limit(buffer.capacity());
+                position += bytes;
+            }
+            return new PatternDatabase(numBits, regionSize, scale, tables);
+        }
+    }
+
+    private static void write(Path path, XorStateSpace stateSpace, int regionSize, long fingerprint) throws IOException {
+        int numBits = stateSpace.numBits();
+        int numRegions = (numBits + regionSize - 1) / regionSize;
+        int scale = costScale(stateSpace);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numBits).putInt(regionSize)
+                .putLong(fingerprint).putInt(scale).putInt(numRegions);
+            header.flip();
+            writeFully(channel, header);
+            for (int r = 0; r < numRegions; r++) {
+                int start = r * regionSize;
+                int length = Math.min(regionSize, numBits - start);
+                char[] table = computeTable(stateSpace, start, length, scale);
+                ByteBuffer buffer = ByteBuffer.allocate(2 * table.length);
+                buffer.asCharBuffer().put(table);
+                writeFully(channel, buffer);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /*
+      Computes the abstract goal distance of every pattern of the region
+      start..start+length-1 by Dijkstra's algorithm from the all-zero
+      pattern. Abstract actions with the same projected mask are merged,
+      keeping the cheapest cost share.
+    */
+    private static char[] computeTable(XorStateSpace stateSpace, int start, int length, int scale) {
+        HashMap<Integer, Integer> abstractActions = new HashMap<>();
+        long[] mask = new long[stateSpace.packedWords()];
+        for (int j = 0; j < stateSpace.numActions(); j++) {
+            stateSpace.toggleMask(j, mask);
+            int projected = extract(mask, start, length);
+            if (projected == 0) {
+                continue;
+            }
+            int share = costShare(stateSpace, j, mask, Integer.bitCount(projected), scale);
+            abstractActions.merge(projected, share, Math::min);
+        }
+        int[] actionMasks = new int[abstractActions.size()];
+        int[] actionCosts = new int[abstractActions.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : abstractActions.entrySet()) {
+            actionMasks[i] = entry.getKey();
+            actionCosts[i] = entry.getValue();
+            i++;
+        }
+
+        int[] distance = new int[1 << length];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        distance[0] = 0;
+        // Queue entries are (distance << 32 | pattern).
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add(0L);
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int pattern = (int) entry;
+            int d = (int) (entry >>> 32);
+            if (d > distance[pattern]) {
+                continue;
+            }
+            for (int a = 0; a < actionMasks.length; a++) {
+                int succ = pattern ^ actionMasks[a];
+                int succDistance = d + actionCosts[a];
+                if (succDistance < distance[succ]) {
+                    distance[succ] = succDistance;
+                    queue.add(((long) succDistance << 32) | succ);
+                }
+            }
+        }
+
+        char[] table = new char[1 << length];
+        for (int p = 0; p < table.length; p++) {
+            if (distance[p] == Integer.MAX_VALUE) {
+                table[p] = UNREACHABLE;
+            } else {
+                table[p] = (char) Math.min(distance[p], UNREACHABLE - 1);
+            }
+        }
+        return table;
+    }
+
+    /*
+      The scaled share of action j for a region in which it toggles
+      "toggledInRegion" of its bits: cost * scale * toggledInRegion / toggled,
+      rounded down so that the shares never sum to more than the cost.
+    */
+    private static int costShare(XorStateSpace stateSpace, int j, long[] mask, int toggledInRegion, int scale) {
+        int toggled = 0;
+        for (long word : mask) {
+            toggled += Long.bitCount(word);
+        }
+        long cost = stateSpace.cost(stateSpace.getAction(j));
+        return (int) (cost * scale * toggledInRegion / toggled);
+    }
+
+    /*
+      The common scale factor is the least common multiple of the number of
+      bits toggled by the actions (60 for lights-out), so that all cost
+      shares are integers. It is capped to keep the table entries small.
+    */
+    private static int costScale(XorStateSpace stateSpace) {
+        long[] mask = new long[stateSpace.packedWords()];
+        long scale = 1;
+        for (int j = 0; j < stateSpace.numActions(); j++) {
+            stateSpace.toggleMask(j, mask);
+            int toggled = 0;
+            for (long word : mask) {
+                toggled += Long.bitCount(word);
+            }
+            if (toggled > 0) {
+                long lcm = scale / gcd(scale, toggled) * toggled;
+                if (lcm <= MAX_SCALE) {
+                    scale = lcm;
+                }
+            }
+        }
+        return (int) scale;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /* Identifies the actions (masks and costs) the database was built for. */
+    private static long fingerprint(XorStateSpace stateSpace) {
+        long[] mask = new long[stateSpace.packedWords()];
+        long hash = stateSpace.numBits() * 31L + stateSpace.numActions();
+        for (int j = 0; j < stateSpace.numActions(); j++) {
+            stateSpace.toggleMask(j, mask);
+            for (long word : mask) {
+                hash = (hash ^ word) * 0x9E3779B97F4A7C15L;
+            }
+            hash = (hash ^ stateSpace.cost(stateSpace.getAction(j))) * 0x9E3779B97F4A7C15L;
+        }
+        return hash;
+    }
+}
@@ -6,51 +6,255 @@ import java.util.Arrays;
 
 
 public abstract class SearchAlgorithmBase {
+    /* Interval (a power of 2) of expansions at which the progress counters are published. */
+    protected static final long PROGRESS_INTERVAL = 1024;
+    /*
+      Largest number of bits of an XorStateSpace for which the solvability
+      of the initial state is checked by default; the dense elimination
+      takes cubic time in it (see isProvablyUnsolvable).
+    */
+    private static final int GF2_CHECK_MAX_BITS = 4096;
+
     protected StateSpace stateSpace;
     protected long expandedNodes;
+    protected long generatedNodes;
+    protected long prunedDuplicates;
+    protected long peakOpenListSize;
+    protected final SearchStatistics statistics = new SearchStatistics();
+    /* If set, solvability is checked by Gaussian elimination regardless of the size (--gf2-check). */
+    protected boolean forceGf2Check = false;
+    /* If set, the closed lists and g value tables treat symmetric states as duplicates. */
+    protected boolean reduceSymmetries = false;
+    /* Size in bytes of an approximate closed list (see useBitstateClosedList), or 0. */
+    private long bitstateBytes = 0;
+    private int bitstateHashes;
+    private BitstateClosedList bitstateClosedList;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean hasDeadline = false;
+    private long deadline;
+    private Gf2Elimination initialElimination;
 
     public SearchAlgorithmBase(String args[]) {
         stateSpace = createStateSpace(args);
+        forceGf2Check = Options.has(args, "gf2-check");
+    }
+
+    /* For running an algorithm on a state space that was not read from the command line. */
+    protected SearchAlgorithmBase(StateSpace stateSpace) {
+        this.stateSpace = stateSpace;
     }
 
     protected abstract ArrayList<Action> run();
 
     protected void runSearchAlgorithm() {
         System.out.println("Starting search...");
+        statistics.start(getClass().getName());
         long timeStart = getCpuTime();
-        ArrayList<Action> solution = run();
-        long timeEnd = getCpuTime();
+        long timeEnd;
+        ArrayList<Action> solution = null;
+        int totalCost = 0;
+        try {
+            if (isProvablyUnsolvable()) {
+                System.out.println("initial state is unsolvable (by Gaussian elimination)");
+            } else {
+                solution = run();
+            }
+        } finally {
+            // Also when the search throws (e.g., SearchLimitExceededException), so that
+            // the MBean and the JFR hook are removed and the SearchEvent is committed.
+            timeEnd = getCpuTime();
+            if (solution != null) {
+                for (Action action : solution) {
+                    totalCost += stateSpace.cost(action);
+                }
+            }
+            statistics.finish(expandedNodes, generatedNodes, prunedDuplicates, solution != null, totalCost);
+        }
         System.out.println("" + (timeEnd - timeStart) / 1000000000.0
                            + " seconds search time");
         System.out.println("number of expanded nodes: " + expandedNodes);
+        if (generatedNodes > 0) {
+            System.out.println("number of generated nodes: " + generatedNodes);
+        }
+        if (prunedDuplicates > 0) {
+            System.out.println("number of pruned duplicates: " + prunedDuplicates);
+        }
+        if (peakOpenListSize > 0) {
+            System.out.println("peak open list size: " + peakOpenListSize);
+        }
+        if (bitstateClosedList != null) {
+            bitstateClosedList.printStatistics();
+        }
 
         if (solution == null) {
             System.out.println("no solution");
         } else {
-            int totalCost = 0;
             System.out.println("Solution:");
             for (Action action : solution) {
                 System.out.println(action);
-                totalCost += stateSpace.cost(action);
             }
             System.out.println("Solution length: " +solution.size());
             System.out.println("Solution cost: " + totalCost);
         }
     }
 
+    /*
+      Called by the algorithms after every expansion. Every PROGRESS_INTERVAL
+      expansions, the counters are handed to the statistics, which make
+      them visible over JMX and JFR (see SearchStatistics); otherwise this
+      costs a single test. fBound is the f value (or priority) of the
+      expanded node, or the current bound of iterative deepening.
+    */
+    protected void reportProgress(long openListSize, long closedListSize, long fBound) {
+        if (expandedNodes >= nodeLimit) {
+            throw new SearchLimitExceededException("node limit");
+        }
+        if ((expandedNodes & (PROGRESS_INTERVAL - 1)) == 0) {
+            publishProgress(openListSize, closedListSize, fBound);
+        }
+    }
+
+    /*
+      Publishes the counters right away and checks the limits. For
+      searches whose counters are spread over several threads (see
+      ParallelAStar), which sum them up about every PROGRESS_INTERVAL
+      expansions themselves; calls must not overlap.
+    */
+    protected void publishProgress(long openListSize, long closedListSize, long fBound) {
+        statistics.publish(expandedNodes, generatedNodes, prunedDuplicates,
+                           openListSize, closedListSize, fBound);
+        if (expandedNodes >= nodeLimit) {
+            throw new SearchLimitExceededException("node limit");
+        }
+        if (hasDeadline && System.nanoTime() - deadline > 0) {
+            throw new SearchLimitExceededException("time limit");
+        }
+    }
+
+    /*
+      Limits the number of expansions and the wall-clock time (in
+      nanoseconds from now) of the next run; a search exceeding them throws
+      SearchLimitExceededException from reportProgress. The time limit is
+      checked every PROGRESS_INTERVAL expansions.
+    */
+    public void setLimits(long nodeLimit, long timeLimitNanos) {
+        this.nodeLimit = nodeLimit;
+        hasDeadline = timeLimitNanos != Long.MAX_VALUE;
+        deadline = System.nanoTime() + (hasDeadline ? timeLimitNanos : 0);
+    }
+
+    /*
+      For state spaces that are linear systems over GF(2), solvability
+      can be decided in polynomial time, so we do that before searching.
+      The elimination is dense and takes cubic time in the number of bits,
+      which dominates the search on large grids, so above
+      GF2_CHECK_MAX_BITS it is only done with forceGf2Check.
+    */
+    protected boolean isProvablyUnsolvable() {
+        if (!(stateSpace instanceof XorStateSpace)) {
+            return false;
+        }
+        if (!forceGf2Check && ((XorStateSpace) stateSpace).numBits() > GF2_CHECK_MAX_BITS) {
+            return false;
+        }
+        return !initialElimination().isSolvable();
+    }
+
+    /* The elimination of the initial state, computed on first use. Requires an XorStateSpace. */
+    protected Gf2Elimination initialElimination() {
+        if (initialElimination == null) {
+            initialElimination = new Gf2Elimination((XorStateSpace) stateSpace, stateSpace.init());
+        }
+        return initialElimination;
+    }
+
+    /*
+      Returns an empty closed list for the state space. States that can be
+      packed into words are stored in a primitive hash table; all other
+      states fall back to a HashSet. With reduceSymmetries, the state space
+      must be a SymmetricStateSpace, and its canonical forms are stored.
+    */
+    protected ClosedList createClosedList() {
+        if (bitstateBytes > 0) {
+            bitstateClosedList = new BitstateClosedList((PackedStateSpace) stateSpace, reduceSymmetries,
+                                                        bitstateBytes, bitstateHashes);
+            return bitstateClosedList;
+        }
+        if (stateSpace instanceof PackedStateSpace) {
+            return new PackedClosedList((PackedStateSpace) stateSpace, reduceSymmetries);
+        }
+        return new HashClosedList();
+    }
+
+    /*
+      Makes createClosedList return a BitstateClosedList of the given size
+      in bytes with the given number of hash functions, which prunes some
+      states wrongly but needs no memory per state. Requires a
+      PackedStateSpace. Its statistics are printed after the search.
+    */
+    protected void useBitstateClosedList(long bytes, int hashes) {
+        bitstateBytes = bytes;
+        bitstateHashes = hashes;
+    }
+
+    /*
+      Returns an empty table of g values, using packed keys if possible
+      (see createClosedList).
+    */
+    protected GValueTable createGValueTable() {
+        if (stateSpace instanceof PackedStateSpace) {
+            return new PackedGValueTable((PackedStateSpace) stateSpace, reduceSymmetries);
+        }
+        return new HashGValueTable();
+    }
+
+    /*
+      Returns an empty open list of the given type: "heap" (binary heap)
+      or "bucket" (one bucket per priority; only for small non-negative
+      integer priorities).
+    */
+    protected <T> OpenList<T> createOpenList(String type) {
+        if (type.equals("heap")) {
+            return new HeapOpenList<T>();
+        } else if (type.equals("bucket")) {
+            return new BucketOpenList<T>();
+        } else {
+            Errors.usageError("unknown open list: " + type);
+        }
+        return null;
+    }
+
+    /* Like createOpenList, for the node indices of a NodeStore. */
+    protected IntOpenList createIntOpenList(String type) {
+        if (type.equals("heap")) {
+            return new IntHeapOpenList();
+        } else if (type.equals("bucket")) {
+            return new IntBucketOpenList();
+        } else {
+            Errors.usageError("unknown open list: " + type);
+        }
+        return null;
+    }
+
     protected static long getCpuTime() {
         ThreadMXBean bean = ManagementFactory.getThreadMXBean();
         return bean.isCurrentThreadCpuTimeSupported() ?
             bean.getCurrentThreadCpuTime() : 0;
     }
 
-    private static StateSpace createStateSpace(String args[]) {
+    protected static StateSpace createStateSpace(String args[]) {
         if (args.length == 0) {
             Errors.usageError("no state space given");
         }
 
         ArrayList<String> params = new ArrayList<String>();
         params.add(args[1]);
+        // Options are passed on, the state space ignores those it does not know.
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                params.add(args[i]);
+            }
+        }
 
         if (args[0].equals("lights-out")) {
             return LightsOutStateSpace.buildFromCmdline(params);
@@ -0,0 +1,184 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+  Micro-benchmarks for the hot paths of the search code on lights-out
+  grids: successor generation, heuristic, goal test, hashing and
+  equality of states, the open lists (OpenList, used by
+  BidirectionalSearch and ParallelAStar, and IntOpenList, used by the
+  searches on a NodeStore), and complete A* searches.
+
+  Usage: java SearchBenchmark [--sizes=3x3,4x4,5x5] [--presses=8]
+                              [--warmup=5] [--iterations=10] [--filter=<name>]
+
+  The instances are generated from fixed seeds (see
+  LightsOutStateSpace.buildRandom), so the numbers of different runs are
+  comparable. Each line reports the time per operation with its standard
+  deviation over the measured iterations and the bytes allocated per
+  operation.
+*/
+public class SearchBenchmark {
+    static final int NUM_STATES = 1024;
+    static final int OPERATIONS = 100000;
+    static final int OPEN_LIST_SIZE = 1024;
+    static final int MAX_PRIORITY = 64;
+
+    public static void main(String args[]) {
+        String[] sizes = Options.get(args, "sizes", "3x3,4x4,5x5").split(",");
+        int presses = Integer.parseInt(Options.get(args, "presses", "8"));
+        MicroBenchmark benchmark = new MicroBenchmark(args);
+
+        for (String size : sizes) {
+            String[] dims = size.split("x");
+            if (dims.length != 2) {
+                Errors.usageError("invalid grid size: " + size);
+            }
+            int dimx = Integer.parseInt(dims[0]);
+            int dimy = Integer.parseInt(dims[1]);
+            StateSpace stateSpace = LightsOutStateSpace.buildRandom(dimx, dimy, presses, 4052169);
+            benchmarkStateSpace(benchmark, size, stateSpace);
+            benchmarkSearch(benchmark, size, stateSpace);
+        }
+        benchmarkOpenList(benchmark, "heap");
+        benchmarkOpenList(benchmark, "bucket");
+        benchmarkIntOpenList(benchmark, "heap");
+        benchmarkIntOpenList(benchmark, "bucket");
+    }
+
+    /* Returns states reached by random walks from the initial state. */
+    private static State[] randomStates(StateSpace stateSpace) {
+        Random rand = new Random(4052169);
+        State[] states = new State[NUM_STATES];
+        State s = stateSpace.init();
+        for (int i = 0; i < NUM_STATES; i++) {
+            ArrayList<ActionStatePair> successors = stateSpace.succ(s);
+            if (!successors.isEmpty()) {
+                s = successors.get(rand.nextInt(successors.size())).state;
+            }
+            states[i] = s;
+        }
+        return states;
+    }
+
+    private static void benchmarkStateSpace(MicroBenchmark benchmark, String size,
+                                            StateSpace stateSpace) {
+        State[] states = randomStates(stateSpace);
+        // Equal but distinct objects, so that equals cannot stop at reference equality.
+        State[] copies = new State[NUM_STATES];
+        for (int i = 0; i < NUM_STATES; i++) {
+            copies[i] = copyState(stateSpace, states[i]);
+        }
+
+        benchmark.measure("succ " + size, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                result += stateSpace.succ(states[i % NUM_STATES]).size();
+            }
+            return result;
+        });
+        benchmark.measure("h " + size, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                result += stateSpace.h(states[i % NUM_STATES]);
+            }
+            return result;
+        });
+        benchmark.measure("isGoal " + size, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                if (stateSpace.isGoal(states[i % NUM_STATES])) {
+                    result++;
+                }
+            }
+            return result;
+        });
+        benchmark.measure("hashCode " + size, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                result += states[i % NUM_STATES].hashCode();
+            }
+            return result;
+        });
+        benchmark.measure("equals " + size, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                if (states[i % NUM_STATES].equals(copies[(i * 7) % NUM_STATES])) {
+                    result++;
+                }
+            }
+            return result;
+        });
+    }
+
+    /*
+      An equal copy of s as a different object. State spaces without
+      InPlaceStateSpace give us no way to copy, so we use s itself.
+    */
+    private static State copyState(StateSpace stateSpace, State s) {
+        if (stateSpace instanceof InPlaceStateSpace) {
+            return ((InPlaceStateSpace) stateSpace).copyState(s);
+        }
+        return s;
+    }
+
+    /* Complete A* searches (one operation = one search). */
+    private static void benchmarkSearch(MicroBenchmark benchmark, String size,
+                                        StateSpace stateSpace) {
+        String[] args = {"lights-out", "-", "1", "1"};
+        benchmark.measure("BestFirstSearch.run " + size, 1, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                BestFirstSearch search = new BestFirstSearch(stateSpace, args);
+                ArrayList<Action> solution = search.run();
+                result += search.expandedNodes + (solution == null ? 0 : solution.size());
+            }
+            return result;
+        });
+    }
+
+    /*
+      One add and one poll on an open list of OPEN_LIST_SIZE entries with
+      random priorities below MAX_PRIORITY, as in a search on a plateau of
+      a few f values.
+    */
+    private static int[] randomPriorities() {
+        Random rand = new Random(4052169);
+        int[] priorities = new int[NUM_STATES];
+        for (int i = 0; i < NUM_STATES; i++) {
+            priorities[i] = rand.nextInt(MAX_PRIORITY);
+        }
+        return priorities;
+    }
+
+    private static void benchmarkOpenList(MicroBenchmark benchmark, String type) {
+        int[] priorities = randomPriorities();
+        OpenList<Integer> openList = type.equals("heap") ? new HeapOpenList<Integer>() : new BucketOpenList<Integer>();
+        for (int i = 0; i < OPEN_LIST_SIZE; i++) {
+            openList.add(i, priorities[i % NUM_STATES]);
+        }
+        benchmark.measure("OpenList add+poll " + type, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                openList.add(i & 127, priorities[i % NUM_STATES]);
+                result += openList.poll();
+            }
+            return result;
+        });
+    }
+
+    private static void benchmarkIntOpenList(MicroBenchmark benchmark, String type) {
+        int[] priorities = randomPriorities();
+        IntOpenList openList = type.equals("heap") ? new IntHeapOpenList() : new IntBucketOpenList();
+        for (int i = 0; i < OPEN_LIST_SIZE; i++) {
+            openList.add(i, priorities[i % NUM_STATES]);
+        }
+        benchmark.measure("IntOpenList add+poll " + type, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                openList.add(i & 127, priorities[i % NUM_STATES]);
+                result += openList.poll();
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/* JFR event spanning a complete search, with its final counters and result. */
+@Name("search.Search")
+@Label("Search")
+@Category("Search")
+@Description("A complete run of a search algorithm")
+@StackTrace(false)
+public class SearchEvent extends jdk.jfr.Event {
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Expanded Nodes")
+    long expandedNodes;
+
+    @Label("Generated Nodes")
+    long generatedNodes;
+
+    @Label("Pruned Duplicates")
+    long prunedDuplicates;
+
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Solution Cost")
+    long solutionCost;
+}
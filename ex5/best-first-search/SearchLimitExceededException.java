@@ -0,0 +1,12 @@
+/*
+  Thrown out of SearchAlgorithmBase.reportProgress when a search exceeds
+  the time or node limit set with setLimits. It unwinds the search, whose
+  partial results are then discarded.
+*/
+public class SearchLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SearchLimitExceededException(String message) {
+        super(message);
+    }
+}
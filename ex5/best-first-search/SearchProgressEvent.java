@@ -0,0 +1,49 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/*
+  JFR event with a snapshot of the counters of a running search. It is
+  emitted by a periodic hook (see SearchStatistics), so its cost does not
+  depend on the number of expansions, and nothing happens unless a
+  flight recording with this event enabled is running.
+*/
+@Name("search.Progress")
+@Label("Search Progress")
+@Category("Search")
+@Description("Counters of a running search")
+@Period("1 s")
+@StackTrace(false)
+public class SearchProgressEvent extends jdk.jfr.Event {
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Expanded Nodes")
+    long expandedNodes;
+
+    @Label("Generated Nodes")
+    long generatedNodes;
+
+    @Label("Pruned Duplicates")
+    long prunedDuplicates;
+
+    @Label("Open List Size")
+    long openListSize;
+
+    @Label("Closed List Size")
+    long closedListSize;
+
+    @Label("F Bound")
+    long fBound;
+
+    @Label("Expansions per Second")
+    double expansionsPerSecond;
+
+    @Label("Heap Used")
+    @DataAmount
+    long heapUsed;
+}
@@ -0,0 +1,150 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.FlightRecorder;
+
+/*
+  Live counters of a running search, exposed as a JMX MBean (under
+  "search:type=SearchStatistics,name=<algorithm>,id=<n>") and as periodic
+  JFR events (SearchProgressEvent), plus one SearchEvent for the whole
+  search.
+
+  The search thread publishes its counters with publish(), which only
+  writes a few volatile fields; SearchAlgorithmBase.reportProgress calls
+  it once every 1024 expansions. Readers (JMX clients, the JFR periodic
+  hook) only read these fields, so they never slow down the search.
+*/
+public class SearchStatistics implements SearchStatisticsMBean {
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private volatile String algorithm = "";
+    private volatile long expandedNodes;
+    private volatile long generatedNodes;
+    private volatile long prunedDuplicates;
+    private volatile long openListSize;
+    private volatile long closedListSize;
+    private volatile long fBound;
+    private volatile double expansionsPerSecond;
+
+    // Only used by the search thread.
+    private long lastPublishTime;
+    private long lastPublishExpandedNodes;
+    private ObjectName objectName;
+    private SearchEvent searchEvent;
+    private final Runnable periodicHook = this::emitProgressEvent;
+
+    /* Registers the MBean and the JFR hook and starts the SearchEvent. */
+    public void start(String algorithm) {
+        this.algorithm = algorithm;
+        lastPublishTime = System.nanoTime();
+        lastPublishExpandedNodes = 0;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("search:type=SearchStatistics,name=" + algorithm
+                                        + ",id=" + nextId.incrementAndGet());
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            // Monitoring is optional; the search works without it.
+            System.err.println("cannot register search statistics MBean: " + e.getMessage());
+            objectName = null;
+        }
+        FlightRecorder.addPeriodicEvent(SearchProgressEvent.class, periodicHook);
+        searchEvent = new SearchEvent();
+        searchEvent.begin();
+    }
+
+    public void publish(long expandedNodes, long generatedNodes, long prunedDuplicates,
+                        long openListSize, long closedListSize, long fBound) {
+        long now = System.nanoTime();
+        if (now > lastPublishTime) {
+            expansionsPerSecond = (expandedNodes - lastPublishExpandedNodes) * 1e9 / (now - lastPublishTime);
+        }
+        lastPublishTime = now;
+        lastPublishExpandedNodes = expandedNodes;
+        this.expandedNodes = expandedNodes;
+        this.generatedNodes = generatedNodes;
+        this.prunedDuplicates = prunedDuplicates;
+        this.openListSize = openListSize;
+        this.closedListSize = closedListSize;
+        this.fBound = fBound;
+    }
+
+    /* Publishes the final counters, commits the SearchEvent and unregisters everything. */
+    public void finish(long expandedNodes, long generatedNodes, long prunedDuplicates,
+                       boolean solved, long solutionCost) {
+        publish(expandedNodes, generatedNodes, prunedDuplicates, openListSize, closedListSize, fBound);
+        searchEvent.end();
+        if (searchEvent.shouldCommit()) {
+            searchEvent.algorithm = algorithm;
+            searchEvent.expandedNodes = expandedNodes;
+            searchEvent.generatedNodes = generatedNodes;
+            searchEvent.prunedDuplicates = prunedDuplicates;
+            searchEvent.solved = solved;
+            searchEvent.solutionCost = solutionCost;
+            searchEvent.commit();
+        }
+        FlightRecorder.removePeriodicEvent(periodicHook);
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                System.err.println("cannot unregister search statistics MBean: " + e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+
+    private void emitProgressEvent() {
+        SearchProgressEvent event = new SearchProgressEvent();
+        event.algorithm = algorithm;
+        event.expandedNodes = expandedNodes;
+        event.generatedNodes = generatedNodes;
+        event.prunedDuplicates = prunedDuplicates;
+        event.openListSize = openListSize;
+        event.closedListSize = closedListSize;
+        event.fBound = fBound;
+        event.expansionsPerSecond = expansionsPerSecond;
+        event.heapUsed = getHeapUsed();
+        event.commit();
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    public long getGeneratedNodes() {
+        return generatedNodes;
+    }
+
+    public long getPrunedDuplicates() {
+        return prunedDuplicates;
+    }
+
+    public long getOpenListSize() {
+        return openListSize;
+    }
+
+    public long getClosedListSize() {
+        return closedListSize;
+    }
+
+    public long getFBound() {
+        return fBound;
+    }
+
+    public double getExpansionsPerSecond() {
+        return expansionsPerSecond;
+    }
+
+    public long getHeapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,15 @@
+/*
+  Management interface of SearchStatistics: the live counters of the
+  running search, as last published by SearchAlgorithmBase.reportProgress.
+*/
+public interface SearchStatisticsMBean {
+    public String getAlgorithm();
+    public long getExpandedNodes();
+    public long getGeneratedNodes();
+    public long getPrunedDuplicates();
+    public long getOpenListSize();
+    public long getClosedListSize();
+    public long getFBound();
+    public double getExpansionsPerSecond();
+    public long getHeapUsed();
+}
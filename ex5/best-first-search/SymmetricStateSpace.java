@@ -0,0 +1,18 @@
+/*
+  Optional capability of a PackedStateSpace with symmetries: permutations
+  of the packed bits that map goal states to goal states and preserve
+  the action costs, so that symmetric states have the same cost to the
+  goal. A search that has reached a state only needs to consider its
+  symmetric images if it reaches them more cheaply, so duplicates can
+  be detected on a canonical representative of each set of symmetric
+  states (see SearchAlgorithmBase.createClosedList).
+*/
+public interface SymmetricStateSpace extends PackedStateSpace {
+    /* Number of symmetries, including the identity. */
+    public int numSymmetries();
+    /*
+      Like pack, but writes the canonical symmetric image of s, which is
+      the same for all states that are symmetric to each other.
+    */
+    public void packCanonical(State s, long[] key, int offset);
+}
@@ -0,0 +1,66 @@
+/*
+  Small fixed-size table for iterative deepening searches that remembers
+  the cheapest g value with which a state was reached in the current
+  iteration. It is direct-mapped: every state has exactly one slot, and a
+  new entry simply overwrites the old one, so the memory stays bounded.
+  Entries from earlier iterations are ignored (no clearing needed).
+*/
+public class TranspositionTable {
+    private final PackedStateSpace stateSpace;
+    /* Non-null if the state space provides the hash values. */
+    private final HashedStateSpace hashedStateSpace;
+    private final int stride;
+    private final long[] key;
+    private final long[] keys;
+    private final int[] gValues;
+    private final int[] iterations;
+    private final int mask;
+    private int iteration = 1;
+
+    /* Creates a table with the given number of entries, rounded down to a power of two. */
+    public TranspositionTable(PackedStateSpace stateSpace, int entries) {
+        this.stateSpace = stateSpace;
+        this.hashedStateSpace = (stateSpace instanceof HashedStateSpace) ? (HashedStateSpace) stateSpace : null;
+        this.stride = Math.max(1, stateSpace.packedWords());
+        int capacity = Integer.highestOneBit(Math.max(1, entries));
+        this.key = new long[stride];
+        this.keys = new long[capacity * stride];
+        this.gValues = new int[capacity];
+        this.iterations = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /* Invalidates all entries. */
+    public void nextIteration() {
+        iteration++;
+    }
+
+    /*
+      Returns true if s was already reached in this iteration with a g
+      value of at most g. Otherwise, records s with g and returns false.
+    */
+    public boolean isDominated(State s, int g) {
+        stateSpace.pack(s, key, 0);
+        long h = 0;
+        if (hashedStateSpace != null) {
+            h = hashedStateSpace.hash64(s);
+        } else {
+            for (int i = 0; i < stride; i++) {
+                h = (h ^ key[i]) * 0x9E3779B97F4A7C15L;
+            }
+        }
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        int base = slot * stride;
+        boolean sameState = iterations[slot] == iteration;
+        for (int i = 0; sameState && i < stride; i++) {
+            sameState = keys[base + i] == key[i];
+        }
+        if (sameState && gValues[slot] <= g) {
+            return true;
+        }
+        System.arraycopy(key, 0, keys, base, stride);
+        gValues[slot] = g;
+        iterations[slot] = iteration;
+        return false;
+    }
+}
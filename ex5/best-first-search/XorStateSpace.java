@@ -0,0 +1,16 @@
+/*
+  Optional capability of a state space whose states are bit vectors (in
+  the packed representation of PackedStateSpace) and whose actions XOR a
+  fixed toggle mask into the state. The goal is the all-zero vector.
+
+  Such a state space is a system of linear equations over GF(2), which
+  Gf2Elimination solves without search.
+*/
+public interface XorStateSpace extends PackedStateSpace {
+    /* Number of bits of a state; bit i is stored in word i/64 of the packed state. */
+    public int numBits();
+    public int numActions();
+    public Action getAction(int index);
+    /* Writes the toggle mask of action number index to mask[0..packedWords()). */
+    public void toggleMask(int index, long[] mask);
+}
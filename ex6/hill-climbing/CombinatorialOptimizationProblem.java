@@ -1,8 +1,29 @@
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.SplittableRandom;
 
 public interface CombinatorialOptimizationProblem {
     public Configuration getInitialCandidate();
+    /*
+      Draws the initial candidate from the given random number generator,
+      so that parallel restarts are reproducible. Implementations must not
+      keep per-run state in the problem itself, as several runs may use the
+      same problem concurrently.
+    */
+    public Configuration getInitialCandidate(SplittableRandom rand);
     public ArrayList<Configuration> getNeighbors(Configuration conf);
     public int h(Configuration conf);
+
+    /*
+      Returns a neighbor of conf with minimal h (the first one in the order
+      of getNeighbors if there are several), or an empty Optional if conf
+      has no neighbors. Problems that can evaluate neighbors without
+      building them should override this.
+    */
+    public default Optional<Configuration> getBestNeighbor(Configuration conf) {
+        return getNeighbors(conf).stream().min(Comparator.comparing(neighbor -> h(neighbor)));
+    }
+
     public boolean isSolution(Configuration conf);
 };
@@ -2,23 +2,12 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class HillClimbing {
     protected CombinatorialOptimizationProblem cop;
 
-    private class SearchResult {
-        boolean success;
-        int steps;
-
-        public SearchResult(boolean success, int steps) {
-            this.success = success;
-            this.steps = steps;
-        }
-    }
-
     public HillClimbing(String args[]) {
         if (args.length == 0) {
             Errors.usageError("no combinatorial optimization problem given");
@@ -26,21 +15,26 @@ public class HillClimbing {
 
         if (args[0].equals("8queens")) {
             cop = new EightQueensProblem();
+        } else if (args[0].equals("nqueens")) {
+            cop = NQueensProblem.buildFromCmdline(args);
         } else {
             Errors.usageError("unknown combinatorial optimization problem: " + args[0]);
         }
     }
 
-    protected SearchResult search() {
+    protected SearchResult search(SplittableRandom rand) {
+        if (cop instanceof MoveBasedProblem) {
+            return searchWithMoves((MoveBasedProblem) cop, rand);
+        }
         int steps = 0;
-        Configuration current = cop.getInitialCandidate();
+        Configuration current = cop.getInitialCandidate(rand);
         while (true) {
-            Optional<Configuration> next = cop.getNeighbors(current).stream().min(Comparator.comparing(conf -> cop.h(conf)));
+            Optional<Configuration> next = cop.getBestNeighbor(current);
             steps++;
             if (next.isEmpty()) {
                 return new SearchResult(cop.isSolution(current), steps);
             } else {
-                if (cop.h(next.get()) > cop.h(current)) {
+                if (cop.h(next.get()) >= cop.h(current)) {
                     return new SearchResult(cop.isSolution(current), steps);
                 }
                 current = next.get();
@@ -48,21 +42,22 @@ public class HillClimbing {
         }
     }
 
-    public static void main(String args[]) {
-        HillClimbing hc = new HillClimbing(args);
-        int successfulRuns = 0;
+    /* Same search, but applies the best move in place instead of building neighbors. */
+    private SearchResult searchWithMoves(MoveBasedProblem problem, SplittableRandom rand) {
         int steps = 0;
-        int runs = 1000;
-        for (int i = 0; i < runs; i++) {
-            SearchResult result = hc.search();
-            if (result.success) {
-                successfulRuns++;
+        Configuration current = problem.getInitialCandidate(rand);
+        while (true) {
+            long move = problem.bestMove(current);
+            steps++;
+            if (move == -1 || problem.delta(current, move) >= 0) {
+                return new SearchResult(problem.isSolution(current), steps);
             }
-            steps += result.steps;
+            problem.apply(current, move);
         }
-        System.out.println("Percentage of successful runs: "
-                           + ((double) successfulRuns)/runs * 100+ "%");
-        System.out.println("Average number of steps in successfull runs: "
-                           + ((double) steps)/runs);
+    }
+
+    public static void main(String args[]) {
+        HillClimbing hc = new HillClimbing(args);
+        ParallelRestartRunner.runFromCmdline(hc::search, args);
     }
 }
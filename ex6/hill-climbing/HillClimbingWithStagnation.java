@@ -1,19 +1,9 @@
-import java.util.Comparator;
 import java.util.Optional;
+import java.util.SplittableRandom;
 
 public class HillClimbingWithStagnation {
     protected CombinatorialOptimizationProblem cop;
 
-    private class SearchResult {
-        boolean success;
-        int steps;
-
-        public SearchResult(boolean success, int steps) {
-            this.success = success;
-            this.steps = steps;
-        }
-    }
-
     public HillClimbingWithStagnation(String args[]) {
         if (args.length == 0) {
             Errors.usageError("no combinatorial optimization problem given");
@@ -21,16 +11,21 @@ public class HillClimbingWithStagnation {
 
         if (args[0].equals("8queens")) {
             cop = new EightQueensProblem();
+        } else if (args[0].equals("nqueens")) {
+            cop = NQueensProblem.buildFromCmdline(args);
         } else {
             Errors.usageError("unknown combinatorial optimization problem: " + args[0]);
         }
     }
 
-    protected SearchResult search() {
+    protected SearchResult search(SplittableRandom rand) {
+        if (cop instanceof MoveBasedProblem) {
+            return searchWithMoves((MoveBasedProblem) cop, rand);
+        }
         int steps = 0;
-        Configuration current = cop.getInitialCandidate();
+        Configuration current = cop.getInitialCandidate(rand);
         while (steps < 100) {
-            Optional<Configuration> next = cop.getNeighbors(current).stream().min(Comparator.comparing(conf -> cop.h(conf)));
+            Optional<Configuration> next = cop.getBestNeighbor(current);
             steps++;
             if (next.isEmpty()) {
                 return new SearchResult(cop.isSolution(current), steps);
@@ -44,21 +39,23 @@ public class HillClimbingWithStagnation {
         return new SearchResult(cop.isSolution(current), steps);
     }
 
-    public static void main(String args[]) {
-        HillClimbingWithStagnation hc = new HillClimbingWithStagnation(args);
-        int successfulRuns = 0;
+    /* Same search, but applies the best move in place instead of building neighbors. */
+    private SearchResult searchWithMoves(MoveBasedProblem problem, SplittableRandom rand) {
         int steps = 0;
-        int runs = 1000;
-        for (int i = 0; i < runs; i++) {
-            SearchResult result = hc.search();
-            if (result.success) {
-                successfulRuns++;
+        Configuration current = problem.getInitialCandidate(rand);
+        while (steps < 100) {
+            long move = problem.bestMove(current);
+            steps++;
+            if (move == -1 || problem.isSolution(current)) {
+                return new SearchResult(problem.isSolution(current), steps);
             }
-            steps += result.steps;
+            problem.apply(current, move);
         }
-        System.out.println("Percentage of successful runs: "
-                           + ((double) successfulRuns)/runs * 100+ "%");
-        System.out.println("Average number of steps in successfull runs: "
-                           + ((double) steps)/runs);
+        return new SearchResult(problem.isSolution(current), steps);
+    }
+
+    public static void main(String args[]) {
+        HillClimbingWithStagnation hc = new HillClimbingWithStagnation(args);
+        ParallelRestartRunner.runFromCmdline(hc::search, args);
     }
 }
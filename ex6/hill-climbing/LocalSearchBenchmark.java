@@ -0,0 +1,86 @@
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/*
+  Micro-benchmarks for the hot paths of the local search code on
+  n-queens problems: building the neighborhood, evaluating h, finding the
+  best neighbor with and without building neighbors, and complete hill
+  climbing runs.
+
+  Usage: java LocalSearchBenchmark [--sizes=8,32] [--warmup=5]
+                                   [--iterations=10] [--filter=<name>]
+
+  The configurations are drawn from a fixed seed, so the numbers of
+  different runs are comparable. Each line reports the time per operation
+  with its standard deviation over the measured iterations and the bytes
+  allocated per operation.
+*/
+public class LocalSearchBenchmark {
+    static final int NUM_CONFIGURATIONS = 1024;
+    static final int OPERATIONS = 10000;
+
+    public static void main(String args[]) {
+        String[] sizes = Options.get(args, "sizes", "8,32").split(",");
+        MicroBenchmark benchmark = new MicroBenchmark(args);
+
+        for (String size : sizes) {
+            int n = Integer.parseInt(size);
+            CombinatorialOptimizationProblem problem = n == 8 ? new EightQueensProblem() : new NQueensProblem(n);
+            benchmarkProblem(benchmark, n + "queens", problem);
+        }
+    }
+
+    private static void benchmarkProblem(MicroBenchmark benchmark, String name,
+                                         CombinatorialOptimizationProblem problem) {
+        SplittableRandom rand = new SplittableRandom(4052169);
+        Configuration[] configurations = new Configuration[NUM_CONFIGURATIONS];
+        for (int i = 0; i < NUM_CONFIGURATIONS; i++) {
+            configurations[i] = problem.getInitialCandidate(rand);
+        }
+
+        benchmark.measure("getNeighbors " + name, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                result += problem.getNeighbors(configurations[i % NUM_CONFIGURATIONS]).size();
+            }
+            return result;
+        });
+        benchmark.measure("h " + name, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                result += problem.h(configurations[i % NUM_CONFIGURATIONS]);
+            }
+            return result;
+        });
+        benchmark.measure("getBestNeighbor " + name, OPERATIONS, operations -> {
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                Optional<Configuration> next = problem.getBestNeighbor(configurations[i % NUM_CONFIGURATIONS]);
+                result += problem.h(next.get());
+            }
+            return result;
+        });
+        if (problem instanceof MoveBasedProblem) {
+            MoveBasedProblem moveBasedProblem = (MoveBasedProblem) problem;
+            benchmark.measure("bestMove " + name, OPERATIONS, operations -> {
+                long result = 0;
+                for (int i = 0; i < operations; i++) {
+                    result += moveBasedProblem.bestMove(configurations[i % NUM_CONFIGURATIONS]);
+                }
+                return result;
+            });
+        }
+
+        // One operation = one complete hill climbing run from a random candidate.
+        HillClimbing hillClimbing = new HillClimbing(new String[] {"8queens"});
+        hillClimbing.cop = problem;
+        benchmark.measure("HillClimbing.search " + name, OPERATIONS / 10, operations -> {
+            SplittableRandom searchRand = new SplittableRandom(4052169);
+            long result = 0;
+            for (int i = 0; i < operations; i++) {
+                result += hillClimbing.search(searchRand).steps;
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,85 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/*
+  Small harness for micro-benchmarks of hot code paths.
+
+  A benchmark is a batch of operations written as its own loop, so that
+  the measured loop is compiled separately for every benchmark and no
+  virtual call per operation distorts the result. Every batch is run for
+  a number of warmup iterations (to let the JIT compile it) and then for
+  a number of measured iterations, after which the mean time per
+  operation, its standard deviation over the iterations and the number
+  of bytes allocated per operation are printed on one line.
+
+  Batches return a value computed from their results, which is written
+  to a volatile field so that the JIT cannot remove the work as dead code.
+*/
+public class MicroBenchmark {
+    public interface Batch {
+        public long run(int operations);
+    }
+
+    private static volatile long sink;
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final String filter;
+
+    /* Reads --warmup=<n>, --iterations=<n> and --filter=<substring of benchmark names>. */
+    public MicroBenchmark(String args[]) {
+        warmupIterations = Integer.parseInt(Options.get(args, "warmup", "5"));
+        iterations = Integer.parseInt(Options.get(args, "iterations", "10"));
+        filter = Options.get(args, "filter", "");
+        if (iterations < 1) {
+            Errors.usageError("need at least one measured iteration");
+        }
+        System.out.println(String.format(Locale.ROOT, "%-44s %14s %12s %12s",
+                                         "benchmark", "ns/op", "error", "B/op"));
+    }
+
+    public void measure(String name, int operations, Batch batch) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            sink += batch.run(operations);
+        }
+        double[] nanosPerOperation = new double[iterations];
+        long allocatedBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long bytesStart = getAllocatedBytes();
+            long timeStart = System.nanoTime();
+            sink += batch.run(operations);
+            long timeEnd = System.nanoTime();
+            allocatedBytes += getAllocatedBytes() - bytesStart;
+            nanosPerOperation[i] = (double) (timeEnd - timeStart) / operations;
+        }
+
+        double mean = 0;
+        for (double value : nanosPerOperation) {
+            mean += value;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double value : nanosPerOperation) {
+            variance += (value - mean) * (value - mean);
+        }
+        double deviation = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+        double bytesPerOperation = (double) allocatedBytes / iterations / operations;
+        System.out.println(String.format(Locale.ROOT, "%-44s %14.1f %12.1f %12.1f",
+                                         name, mean, deviation, bytesPerOperation));
+    }
+
+    /*
+      Bytes allocated by the current thread so far, or 0 if the JVM does
+      not support allocation measurement.
+    */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
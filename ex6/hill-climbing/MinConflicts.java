@@ -0,0 +1,119 @@
+import java.util.SplittableRandom;
+
+/*
+  Min-conflicts local search for the n-queens problem.
+
+  Starting from a greedy candidate, the search repeatedly picks a random
+  conflicted queen and moves it to a column of its row with the fewest
+  conflicts, breaking ties uniformly at random. The conflicted rows are
+  kept in an array from which a random one is picked in constant time:
+  after a move to a square that is still attacked, the attacking queens
+  are added to it, and rows that are no longer conflicted are dropped
+  when they are picked. Choosing the column and finding the attackers
+  take one linear scan each, so a step costs O(n) time and no
+  allocation.
+*/
+public class MinConflicts {
+    protected NQueensProblem problem;
+    protected int maxSteps;
+
+    public MinConflicts(String args[]) {
+        if (args.length == 0) {
+            Errors.usageError("no combinatorial optimization problem given");
+        }
+
+        if (args[0].equals("8queens")) {
+            problem = new EightQueensProblem();
+        } else if (args[0].equals("nqueens")) {
+            problem = NQueensProblem.buildFromCmdline(args);
+        } else {
+            Errors.usageError("unknown combinatorial optimization problem: " + args[0]);
+        }
+        maxSteps = Integer.parseInt(Options.get(args, "max-steps", "" + Math.max(1000, 10 * problem.n)));
+    }
+
+    protected SearchResult search(SplittableRandom rand) {
+        int n = problem.n;
+        NQueensProblem.NQueensConfiguration current = problem.getGreedyCandidate(rand);
+        int[] conflicted = new int[n];
+        boolean[] listed = new boolean[n];
+        int numConflicted = 0;
+        for (int i = 0; i < n; i++) {
+            if (current.conflicts(i) > 0) {
+                conflicted[numConflicted++] = i;
+                listed[i] = true;
+            }
+        }
+        int steps = 0;
+        while (steps < maxSteps) {
+            if (numConflicted == 0) {
+                return new SearchResult(problem.isSolution(current), steps);
+            }
+            int index = rand.nextInt(numConflicted);
+            int row = conflicted[index];
+            if (current.conflicts(row) == 0) {
+                conflicted[index] = conflicted[--numConflicted];
+                listed[row] = false;
+                continue;
+            }
+            steps++;
+            int column = leastConflictedColumn(current, row, rand);
+            if (column != current.pos[row]) {
+                current.move(row, column);
+                if (current.conflicts(row) > 0) {
+                    for (int i = 0; i < n; i++) {
+                        if (!listed[i] && attacks(current, i, row, column)) {
+                            conflicted[numConflicted++] = i;
+                            listed[i] = true;
+                        }
+                    }
+                }
+            }
+        }
+        return new SearchResult(problem.isSolution(current), steps);
+    }
+
+    /*
+      Returns a column of the given row in which its queen would have the
+      fewest conflicts. Every queen on the same line as the candidate
+      square is a conflict; the queen itself is only counted on its
+      current square, which is taken into account by starting with it.
+    */
+    private int leastConflictedColumn(NQueensProblem.NQueensConfiguration conf, int row,
+                                      SplittableRandom rand) {
+        int n = problem.n;
+        int current = conf.pos[row];
+        int best = current;
+        int bestConflicts = conf.conflicts(row);
+        int ties = 1;
+        for (int j = 0; j < n; j++) {
+            if (j == current) {
+                continue;
+            }
+            int conflicts = conf.columnCount[j]
+                + conf.diagonalCount[row - j + n - 1]
+                + conf.antiDiagonalCount[row + j];
+            if (conflicts < bestConflicts) {
+                best = j;
+                bestConflicts = conflicts;
+                ties = 1;
+            } else if (conflicts == bestConflicts && rand.nextInt(++ties) == 0) {
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    /* Returns true iff the queen of row i attacks the square (row, column). */
+    private static boolean attacks(NQueensProblem.NQueensConfiguration conf, int i, int row, int column) {
+        int j = conf.pos[i];
+        return i != row && (j == column || i - j == row - column || i + j == row + column);
+    }
+
+    public static void main(String args[]) {
+        MinConflicts mc = new MinConflicts(args);
+        long startTime = System.nanoTime();
+        ParallelRestartRunner.runFromCmdline(mc::search, args, 1);
+        System.out.println("Elapsed time: " + (System.nanoTime() - startTime) / 1e9 + "s");
+    }
+}
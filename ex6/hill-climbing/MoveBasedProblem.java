@@ -0,0 +1,51 @@
+/*
+  Optional extension of CombinatorialOptimizationProblem for problems
+  whose neighborhood can be described by moves that modify a
+  configuration in place.
+
+  The moves applicable in a configuration are numbered from 0 to
+  moveCount(conf) - 1, in the same order as the neighbors returned by
+  getNeighbors. Local search algorithms check for this interface with
+  instanceof and then evaluate moves by their effect on h without
+  building any neighbor configurations. Moves are numbered with longs,
+  since neighborhoods of large problems (e.g., n * (n - 1) moves for n
+  queens) may have more than Integer.MAX_VALUE moves.
+
+  Configurations handed out by a move-based problem are modified by
+  apply and undo, so each search run must work on its own configuration.
+*/
+public interface MoveBasedProblem extends CombinatorialOptimizationProblem {
+    public long moveCount(Configuration conf);
+
+    /* Returns h(conf after applying move) - h(conf) without modifying conf. */
+    public int delta(Configuration conf, long move);
+
+    /*
+      Applies the move to conf in place and returns the move that takes the
+      resulting configuration back to the original one.
+    */
+    public long apply(Configuration conf, long move);
+
+    /* Takes back a move, given the inverse move returned by apply. */
+    public default void undo(Configuration conf, long inverseMove) {
+        apply(conf, inverseMove);
+    }
+
+    /*
+      Returns the move with the smallest delta (the first one if there are
+      several), or -1 if conf has no moves.
+    */
+    public default long bestMove(Configuration conf) {
+        long bestMove = -1;
+        int bestDelta = Integer.MAX_VALUE;
+        long moves = moveCount(conf);
+        for (long move = 0; move < moves; move++) {
+            int delta = delta(conf, move);
+            if (delta < bestDelta) {
+                bestMove = move;
+                bestDelta = delta;
+            }
+        }
+        return bestMove;
+    }
+}
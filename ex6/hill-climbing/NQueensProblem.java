@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/*
+  The n-queens problem: place n queens on an n x n board such that no two
+  of them attack each other.
+
+  Only the array sizes depend on n, so the problem works for large boards
+  as well: a configuration needs linear memory, h is maintained
+  incrementally and a move is evaluated in constant time. Enumerating all
+  n * (n - 1) moves, as hill climbing does, only makes sense for moderate
+  n; MinConflicts handles boards with up to millions of queens.
+*/
+public class NQueensProblem implements MoveBasedProblem {
+    /*
+      Number of random free columns tried for each queen by
+      getGreedyCandidate before it gives up on finding one with empty
+      diagonals.
+    */
+    private static final int GREEDY_ATTEMPTS = 256;
+
+    protected final int n;
+
+    public NQueensProblem(int n) {
+        this.n = n;
+    }
+
+    /* Builds the problem from the arguments "nqueens <n>". */
+    public static NQueensProblem buildFromCmdline(String args[]) {
+        if (args.length < 2 || args[1].startsWith("--")) {
+            Errors.usageError("nqueens needs the number of queens");
+        }
+        int n = 0;
+        try {
+            n = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            Errors.usageError("invalid number of queens: " + args[1]);
+        }
+        if (n < 1) {
+            Errors.usageError("need at least one queen");
+        }
+        return new NQueensProblem(n);
+    }
+
+    /*
+      A configuration places the queen of row i in column pos[i]. Besides
+      the positions, it keeps the number of queens in every column and on
+      every diagonal (indexed by i - pos[i] + n - 1) and anti-diagonal
+      (indexed by i + pos[i]), together with the resulting number of
+      attacking pairs. With these counters the change of h caused by
+      moving a single queen can be computed in constant time.
+
+      Moves are numbered row by row: move m moves the queen of row
+      m / (n - 1) to the (m % (n - 1))-th column other than its current one.
+      The problem itself keeps no state, so one problem instance can be
+      shared by several searches running in parallel.
+    */
+    class NQueensConfiguration implements Configuration {
+        public final int[] pos;
+        final int[] columnCount;
+        final int[] diagonalCount;
+        final int[] antiDiagonalCount;
+        long h;
+
+        public NQueensConfiguration(int[] pos) {
+            this.pos = pos;
+            columnCount = new int[n];
+            diagonalCount = new int[2 * n - 1];
+            antiDiagonalCount = new int[2 * n - 1];
+            long conflicts = 0;
+            for (int i = 0; i < n; i++) {
+                conflicts += columnCount[pos[i]]++;
+                conflicts += diagonalCount[i - pos[i] + n - 1]++;
+                conflicts += antiDiagonalCount[i + pos[i]]++;
+            }
+            h = conflicts;
+        }
+
+        private NQueensConfiguration(NQueensConfiguration other) {
+            pos = other.pos.clone();
+            columnCount = other.columnCount.clone();
+            diagonalCount = other.diagonalCount.clone();
+            antiDiagonalCount = other.antiDiagonalCount.clone();
+            h = other.h;
+        }
+
+        /* Moves the queen of row i to column j != pos[i]. */
+        void move(int i, int j) {
+            h += delta(i, j);
+            int k = pos[i];
+            columnCount[k]--;
+            diagonalCount[i - k + n - 1]--;
+            antiDiagonalCount[i + k]--;
+            pos[i] = j;
+            columnCount[j]++;
+            diagonalCount[i - j + n - 1]++;
+            antiDiagonalCount[i + j]++;
+        }
+
+        /*
+          Change of h when the queen of row i moves to column j != pos[i].
+          The queen leaves three lines, losing one conflict with each other
+          queen on them, and joins three lines, none of which it was on
+          before, so the counts there are not affected by its removal.
+        */
+        int delta(int i, int j) {
+            int added = columnCount[j]
+                + diagonalCount[i - j + n - 1]
+                + antiDiagonalCount[i + j];
+            return added - conflicts(i);
+        }
+
+        /* Number of other queens attacking the queen of row i. */
+        int conflicts(int i) {
+            int k = pos[i];
+            return (columnCount[k] - 1)
+                + (diagonalCount[i - k + n - 1] - 1)
+                + (antiDiagonalCount[i + k] - 1);
+        }
+
+        public void dump() {
+            String border = " " + "-".repeat(n) + " ";
+            System.out.println(border);
+            for (int i = 0; i < n; i++) {
+                System.out.print("|");
+                for (int j = 0; j < n; j++) {
+                    if (j == this.pos[i]) {
+                        System.out.print("X");
+                    } else {
+                        System.out.print(" ");
+                    }
+                }
+                System.out.println("|");
+            }
+            System.out.println(border);
+        }
+    }
+
+    public Configuration getInitialCandidate() {
+        return getInitialCandidate(new SplittableRandom());
+    }
+
+    public Configuration getInitialCandidate(SplittableRandom rand) {
+        int[] pos = new int[n];
+        for (int i = 0; i < pos.length; i++) {
+            pos[i] = rand.nextInt(n);
+        }
+        return new NQueensConfiguration(pos);
+    }
+
+    /*
+      Builds a candidate with few conflicts as a starting point for
+      min-conflicts search. The queens are placed row by row in distinct
+      columns, so there are no column conflicts, and each queen takes the
+      first of up to GREEDY_ATTEMPTS random free columns whose diagonals
+      are still empty. Only the last few rows usually end up with
+      conflicts.
+    */
+    public NQueensConfiguration getGreedyCandidate(SplittableRandom rand) {
+        int[] pos = new int[n];
+        int[] free = new int[n];
+        boolean[] diagonalUsed = new boolean[2 * n - 1];
+        boolean[] antiDiagonalUsed = new boolean[2 * n - 1];
+        for (int j = 0; j < n; j++) {
+            free[j] = j;
+        }
+        int remaining = n;
+        for (int i = 0; i < n; i++) {
+            int choice = 0;
+            for (int attempt = 0; attempt < GREEDY_ATTEMPTS; attempt++) {
+                choice = rand.nextInt(remaining);
+                int j = free[choice];
+                if (!diagonalUsed[i - j + n - 1] && !antiDiagonalUsed[i + j]) {
+                    break;
+                }
+            }
+            int j = free[choice];
+            free[choice] = free[--remaining];
+            pos[i] = j;
+            diagonalUsed[i - j + n - 1] = true;
+            antiDiagonalUsed[i + j] = true;
+        }
+        return new NQueensConfiguration(pos);
+    }
+
+    public ArrayList<Configuration> getNeighbors(Configuration _conf) {
+        NQueensConfiguration conf = (NQueensConfiguration)_conf;
+        ArrayList<Configuration> result = new ArrayList<Configuration>();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (j == conf.pos[i]) {
+                    continue;
+                }
+                NQueensConfiguration neighbor = new NQueensConfiguration(conf);
+                neighbor.move(i, j);
+                result.add(neighbor);
+            }
+        }
+        return result;
+    }
+
+    public long moveCount(Configuration conf) {
+        return (long) n * (n - 1);
+    }
+
+    public int delta(Configuration _conf, long move) {
+        NQueensConfiguration conf = (NQueensConfiguration)_conf;
+        int i = (int) (move / (n - 1));
+        return conf.delta(i, column(conf, i, (int) (move % (n - 1))));
+    }
+
+    public long apply(Configuration _conf, long move) {
+        NQueensConfiguration conf = (NQueensConfiguration)_conf;
+        int i = (int) (move / (n - 1));
+        int k = conf.pos[i];
+        int j = column(conf, i, (int) (move % (n - 1)));
+        conf.move(i, j);
+        return (long) i * (n - 1) + (k < j ? k : k - 1);
+    }
+
+    /* The r-th column other than the current column of the queen of row i. */
+    private static int column(NQueensConfiguration conf, int i, int r) {
+        return r < conf.pos[i] ? r : r + 1;
+    }
+
+    /* Builds only the configuration of the best move instead of all neighbors. */
+    public Optional<Configuration> getBestNeighbor(Configuration conf) {
+        long move = bestMove(conf);
+        if (move == -1) {
+            return Optional.empty();
+        }
+        NQueensConfiguration neighbor = new NQueensConfiguration((NQueensConfiguration)conf);
+        apply(neighbor, move);
+        return Optional.of(neighbor);
+    }
+
+    public int h(Configuration _conf) {
+        return (int) Math.min(((NQueensConfiguration)_conf).h, Integer.MAX_VALUE);
+    }
+
+    public boolean isSolution(Configuration conf) {
+        return (this.h(conf) == 0);
+    }
+}
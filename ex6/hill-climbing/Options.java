@@ -0,0 +1,25 @@
+/*
+  Access to optional command line arguments of the form "--name=value",
+  which may follow the positional arguments of a search algorithm.
+*/
+public class Options {
+    public static String get(String args[], String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    /* Returns true iff the flag "--name" is given. */
+    public static boolean has(String args[], String name) {
+        for (String arg : args) {
+            if (arg.equals("--" + name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
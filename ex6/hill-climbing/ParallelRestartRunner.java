@@ -0,0 +1,114 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+  Runs many independent restarts of a local search in parallel on a
+  fork-join pool.
+
+  The range of restarts is split recursively into halves down to chunks of
+  CHUNK_SIZE restarts, and the random number generator is split along
+  with it (SplittableRandom.split()). Every chunk therefore gets its own
+  random stream, which only depends on the master seed and the position
+  of the chunk, not on the number of threads or the scheduling: the same
+  seed always gives the same results. Each task returns its own
+  statistics, which are added up when the tasks are joined, so the
+  workers never write to shared counters.
+*/
+public class ParallelRestartRunner {
+    private static final long CHUNK_SIZE = 256;
+
+    public interface Restart {
+        public SearchResult search(SplittableRandom rand);
+    }
+
+    public static class Statistics {
+        public long runs;
+        public long successfulRuns;
+        public long steps;
+
+        private Statistics add(Statistics other) {
+            runs += other.runs;
+            successfulRuns += other.successfulRuns;
+            steps += other.steps;
+            return this;
+        }
+    }
+
+    public static Statistics run(Restart restart, long runs, long seed, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new RestartTask(restart, 0, runs, new SplittableRandom(seed)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+      Common command line handling of the local search programs:
+      --runs=<n> restarts (default 1000), --seed=<n> (default: random,
+      printed for reproducibility) and --threads=<n> (default: number of
+      processors).
+    */
+    public static void runFromCmdline(Restart restart, String args[]) {
+        runFromCmdline(restart, args, 1000);
+    }
+
+    public static void runFromCmdline(Restart restart, String args[], long defaultRuns) {
+        long runs = Long.parseLong(Options.get(args, "runs", "" + defaultRuns));
+        long seed = Long.parseLong(Options.get(args, "seed", "" + System.nanoTime()));
+        int threads = Integer.parseInt(Options.get(args, "threads",
+                "" + Runtime.getRuntime().availableProcessors()));
+        if (runs < 1) {
+            Errors.usageError("need at least one run");
+        }
+        if (threads < 1) {
+            Errors.usageError("need at least one thread");
+        }
+        System.out.println("seed: " + seed);
+
+        Statistics statistics = run(restart, runs, seed, threads);
+        System.out.println("Percentage of successful runs: "
+                           + ((double) statistics.successfulRuns)/statistics.runs * 100+ "%");
+        System.out.println("Average number of steps in successfull runs: "
+                           + ((double) statistics.steps)/statistics.runs);
+    }
+
+    private static class RestartTask extends RecursiveTask<Statistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final Restart restart;
+        private final long from;
+        private final long to;
+        private final SplittableRandom rand;
+
+        RestartTask(Restart restart, long from, long to, SplittableRandom rand) {
+            this.restart = restart;
+            this.from = from;
+            this.to = to;
+            this.rand = rand;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (to - from <= CHUNK_SIZE) {
+                Statistics statistics = new Statistics();
+                for (long i = from; i < to; i++) {
+                    SearchResult result = restart.search(rand);
+                    statistics.runs++;
+                    if (result.success) {
+                        statistics.successfulRuns++;
+                    }
+                    statistics.steps += result.steps;
+                }
+                return statistics;
+            }
+            long middle = from + (to - from) / 2;
+            RestartTask right = new RestartTask(restart, middle, to, rand.split());
+            RestartTask left = new RestartTask(restart, from, middle, rand);
+            right.fork();
+            Statistics statistics = left.compute();
+            return statistics.add(right.join());
+        }
+    }
+}
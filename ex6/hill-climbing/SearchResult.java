@@ -0,0 +1,12 @@
+/*
+  Result of a single local search run.
+*/
+public class SearchResult {
+    public final boolean success;
+    public final int steps;
+
+    public SearchResult(boolean success, int steps) {
+        this.success = success;
+        this.steps = steps;
+    }
+}